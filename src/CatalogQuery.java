@@ -0,0 +1,90 @@
+import java.util.*;
+
+/**
+ * Immutable catalog filter. Values within one attribute are alternatives
+ * (category is PROGRAMMING or DESIGN); attributes must all hold. An attribute
+ * left empty does not filter. Each with* method returns a new query.
+ */
+public final class CatalogQuery {
+    private static final CatalogQuery ALL = new CatalogQuery(EnumSet.noneOf(CourseCategory.class),
+            EnumSet.noneOf(CourseDifficulty.class), Collections.emptySet(), 0.0, 0, Integer.MAX_VALUE);
+
+    private final EnumSet<CourseCategory> categories;
+    private final EnumSet<CourseDifficulty> difficulties;
+    private final Set<String> providers;
+    private final double minAverageRating;
+    private final int minRatingCount;
+    private final int maxRatingCount;
+
+    private CatalogQuery(EnumSet<CourseCategory> categories, EnumSet<CourseDifficulty> difficulties,
+                         Set<String> providers, double minAverageRating, int minRatingCount, int maxRatingCount) {
+        this.categories = categories;
+        this.difficulties = difficulties;
+        this.providers = providers;
+        this.minAverageRating = minAverageRating;
+        this.minRatingCount = minRatingCount;
+        this.maxRatingCount = maxRatingCount;
+    }
+
+    // Matches every course
+    public static CatalogQuery all() {
+        return ALL;
+    }
+
+    public CatalogQuery withCategories(CourseCategory... values) {
+        EnumSet<CourseCategory> next = EnumSet.noneOf(CourseCategory.class);
+        for (CourseCategory value : values) {
+            if (value == null) throw new IllegalArgumentException("Category cannot be null");
+            next.add(value);
+        }
+        return new CatalogQuery(next, difficulties, providers, minAverageRating, minRatingCount, maxRatingCount);
+    }
+
+    public CatalogQuery withDifficulties(CourseDifficulty... values) {
+        EnumSet<CourseDifficulty> next = EnumSet.noneOf(CourseDifficulty.class);
+        for (CourseDifficulty value : values) {
+            if (value == null) throw new IllegalArgumentException("Difficulty cannot be null");
+            next.add(value);
+        }
+        return new CatalogQuery(categories, next, providers, minAverageRating, minRatingCount, maxRatingCount);
+    }
+
+    public CatalogQuery withProviders(String... values) {
+        Set<String> next = new HashSet<>();
+        for (String value : values) {
+            if (value == null || value.trim().isEmpty()) throw new IllegalArgumentException("Provider cannot be empty");
+            next.add(value);
+        }
+        return new CatalogQuery(categories, difficulties, Collections.unmodifiableSet(next), minAverageRating,
+                minRatingCount, maxRatingCount);
+    }
+
+    // 0 means any rating, unrated courses included
+    public CatalogQuery withMinAverageRating(double value) {
+        if (value < 0 || value > 5) throw new IllegalArgumentException("Minimum rating must be between 0 and 5");
+        return new CatalogQuery(categories, difficulties, providers, value, minRatingCount, maxRatingCount);
+    }
+
+    // Inclusive on both ends
+    public CatalogQuery withRatingCountBetween(int min, int max) {
+        if (min < 0 || max < min) throw new IllegalArgumentException("Invalid rating count range");
+        return new CatalogQuery(categories, difficulties, providers, minAverageRating, min, max);
+    }
+
+    public Set<CourseCategory> getCategories() { return Collections.unmodifiableSet(categories); }
+    public Set<CourseDifficulty> getDifficulties() { return Collections.unmodifiableSet(difficulties); }
+    public Set<String> getProviders() { return providers; }
+    public double getMinAverageRating() { return minAverageRating; }
+    public int getMinRatingCount() { return minRatingCount; }
+    public int getMaxRatingCount() { return maxRatingCount; }
+
+    // Whether the course passes; the reference the bitmap index must agree with
+    public boolean matches(Course course) {
+        return (categories.isEmpty() || categories.contains(course.getCategory()))
+                && (difficulties.isEmpty() || difficulties.contains(course.getDifficulty()))
+                && (providers.isEmpty() || providers.contains(course.getProvider()))
+                && course.getAverageRating() >= minAverageRating
+                && course.getRatingCount() >= minRatingCount
+                && course.getRatingCount() <= maxRatingCount;
+    }
+}
@@ -0,0 +1,279 @@
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Bitmap indexes over catalog positions for CatalogQuery: one CompressedBitmap
+ * per category, difficulty and provider, plus bucketed bitmaps for average
+ * rating (tenths of a star) and rating count (powers of two). A query ORs the
+ * bitmaps of each attribute's accepted values and ANDs the attributes together;
+ * only the one or two range buckets a bound falls inside are checked value by
+ * value. Rating buckets follow course events, attributes follow addCourse.
+ *
+ * Every method is synchronized; queries return fresh bitmaps, so callers read
+ * their result without holding the lock.
+ */
+public class CatalogQueryIndex implements Course.ChangeListener {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int RATING_BUCKETS_PER_STAR = 10;
+    private static final int RATING_BUCKETS = 5 * RATING_BUCKETS_PER_STAR + 1;
+    // Band 0 holds unrated courses, band b holds counts in [2^(b-1), 2^b)
+    private static final int COUNT_BANDS = 32;
+
+    private enum Attribute { CATEGORY, DIFFICULTY, PROVIDER, RATING, RATING_COUNT }
+
+    // Course ordinal to catalog position, -1 when the course is not in the catalog
+    private final IntUnaryOperator positions;
+    private final CompressedBitmap all = new CompressedBitmap();
+    private final CompressedBitmap[] byCategory = newBitmaps(CourseCategory.values().length);
+    private final CompressedBitmap[] byDifficulty = newBitmaps(CourseDifficulty.values().length);
+    private final Map<String, CompressedBitmap> byProvider = new HashMap<>();
+    private final CompressedBitmap[] byRating = newBitmaps(RATING_BUCKETS);
+    private final CompressedBitmap[] byCountBand = newBitmaps(COUNT_BANDS);
+    // Per position: the course and the rating values its bits were filed under
+    private Course[] indexed = new Course[INITIAL_CAPACITY];
+    private double[] averages = new double[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+
+    /**
+     * Match counts per attribute value. Each attribute is counted under every
+     * other filter of the query but not its own, so a screen can show what
+     * picking a different value of that attribute would yield.
+     */
+    public static final class Facets {
+        private final int total;
+        private final Map<CourseCategory, Integer> categories;
+        private final Map<CourseDifficulty, Integer> difficulties;
+        private final Map<String, Integer> providers;
+        private final int[] atLeastStars;
+        private final NavigableMap<Integer, Integer> ratingCountBands;
+
+        private Facets(int total, Map<CourseCategory, Integer> categories, Map<CourseDifficulty, Integer> difficulties,
+                       Map<String, Integer> providers, int[] atLeastStars,
+                       NavigableMap<Integer, Integer> ratingCountBands) {
+            this.total = total;
+            this.categories = Collections.unmodifiableMap(categories);
+            this.difficulties = Collections.unmodifiableMap(difficulties);
+            this.providers = Collections.unmodifiableMap(providers);
+            this.atLeastStars = atLeastStars;
+            this.ratingCountBands = Collections.unmodifiableNavigableMap(ratingCountBands);
+        }
+
+        // Courses matching the whole query
+        public int total() { return total; }
+        public Map<CourseCategory, Integer> categories() { return categories; }
+        public Map<CourseDifficulty, Integer> difficulties() { return difficulties; }
+        // Providers with at least one match
+        public Map<String, Integer> providers() { return providers; }
+
+        // Courses whose average rating is at least the given number of stars, 0-5
+        public int atLeastStars(int stars) {
+            if (stars < 0 || stars > 5) throw new IllegalArgumentException("Stars must be between 0 and 5");
+            return atLeastStars[stars];
+        }
+
+        // Keyed by the smallest rating count in each band: 0, 1, 2, 4, 8, ...; empty bands left out
+        public NavigableMap<Integer, Integer> ratingCountBands() { return ratingCountBands; }
+    }
+
+    public CatalogQueryIndex(IntUnaryOperator positions) {
+        this.positions = positions;
+    }
+
+    // Indexes the course at its catalog position, replacing whatever was there
+    public synchronized void set(int position, Course course) {
+        if (position >= indexed.length) {
+            int capacity = Math.max(position + 1, indexed.length * 2);
+            indexed = Arrays.copyOf(indexed, capacity);
+            averages = Arrays.copyOf(averages, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        Course previous = indexed[position];
+        if (previous != null) {
+            byCategory[previous.getCategory().ordinal()].remove(position);
+            byDifficulty[previous.getDifficulty().ordinal()].remove(position);
+            CompressedBitmap providerBits = byProvider.get(previous.getProvider());
+            providerBits.remove(position);
+            if (providerBits.isEmpty()) {
+                byProvider.remove(previous.getProvider());
+            }
+            byRating[ratingBucket(averages[position])].remove(position);
+            byCountBand[countBand(counts[position])].remove(position);
+        }
+        indexed[position] = course;
+        all.add(position);
+        byCategory[course.getCategory().ordinal()].add(position);
+        byDifficulty[course.getDifficulty().ordinal()].add(position);
+        byProvider.computeIfAbsent(course.getProvider(), key -> new CompressedBitmap()).add(position);
+        fileRating(position, course);
+    }
+
+    private void fileRating(int position, Course course) {
+        averages[position] = course.getAverageRating();
+        counts[position] = course.getRatingCount();
+        byRating[ratingBucket(averages[position])].add(position);
+        byCountBand[countBand(counts[position])].add(position);
+    }
+
+    @Override
+    public void onEnrollmentChanged(Course course, int previousCount) {
+        // Enrollment is not a query attribute
+    }
+
+    @Override
+    public synchronized void onRatingAdded(Course course, int userOrdinal, int rating, double previousAverage, int previousCount) {
+        int position = positions.applyAsInt(course.getOrdinal());
+        if (position < 0 || position >= indexed.length || indexed[position] != course) return;
+        byRating[ratingBucket(averages[position])].remove(position);
+        byCountBand[countBand(counts[position])].remove(position);
+        fileRating(position, course);
+    }
+
+    // Catalog positions matching the query
+    public synchronized CompressedBitmap match(CatalogQuery query) {
+        return intersect(filters(query), null);
+    }
+
+    public synchronized Facets facets(CatalogQuery query) {
+        Map<Attribute, CompressedBitmap> filters = filters(query);
+        int total = intersect(filters, null).cardinality();
+
+        Map<CourseCategory, Integer> categories = new EnumMap<>(CourseCategory.class);
+        CompressedBitmap base = intersect(filters, Attribute.CATEGORY);
+        for (CourseCategory category : CourseCategory.values()) {
+            categories.put(category, CompressedBitmap.andCardinality(base, byCategory[category.ordinal()]));
+        }
+
+        Map<CourseDifficulty, Integer> difficulties = new EnumMap<>(CourseDifficulty.class);
+        base = intersect(filters, Attribute.DIFFICULTY);
+        for (CourseDifficulty difficulty : CourseDifficulty.values()) {
+            difficulties.put(difficulty, CompressedBitmap.andCardinality(base, byDifficulty[difficulty.ordinal()]));
+        }
+
+        Map<String, Integer> providers = new TreeMap<>();
+        base = intersect(filters, Attribute.PROVIDER);
+        for (Map.Entry<String, CompressedBitmap> provider : byProvider.entrySet()) {
+            int count = CompressedBitmap.andCardinality(base, provider.getValue());
+            if (count > 0) {
+                providers.put(provider.getKey(), count);
+            }
+        }
+
+        // Whole stars fall on bucket boundaries, so summing buckets from the top is exact
+        int[] atLeastStars = new int[6];
+        base = intersect(filters, Attribute.RATING);
+        int running = 0;
+        for (int bucket = RATING_BUCKETS - 1; bucket >= 0; bucket--) {
+            running += CompressedBitmap.andCardinality(base, byRating[bucket]);
+            if (bucket % RATING_BUCKETS_PER_STAR == 0) {
+                atLeastStars[bucket / RATING_BUCKETS_PER_STAR] = running;
+            }
+        }
+
+        NavigableMap<Integer, Integer> ratingCountBands = new TreeMap<>();
+        base = intersect(filters, Attribute.RATING_COUNT);
+        for (int band = 0; band < COUNT_BANDS; band++) {
+            int count = CompressedBitmap.andCardinality(base, byCountBand[band]);
+            if (count > 0) {
+                ratingCountBands.put(band == 0 ? 0 : 1 << (band - 1), count);
+            }
+        }
+        return new Facets(total, categories, difficulties, providers, atLeastStars, ratingCountBands);
+    }
+
+    // AND of every filter but the skipped attribute's, smallest first so the result shrinks fastest
+    private CompressedBitmap intersect(Map<Attribute, CompressedBitmap> filters, Attribute skipped) {
+        List<CompressedBitmap> applied = new ArrayList<>();
+        for (Map.Entry<Attribute, CompressedBitmap> filter : filters.entrySet()) {
+            if (filter.getKey() != skipped) {
+                applied.add(filter.getValue());
+            }
+        }
+        if (applied.isEmpty()) return all.copy();
+        applied.sort(Comparator.comparingInt(CompressedBitmap::cardinality));
+        CompressedBitmap result = applied.get(0);
+        for (int i = 1; i < applied.size(); i++) {
+            result = CompressedBitmap.and(result, applied.get(i));
+        }
+        return result == applied.get(0) ? result.copy() : result;
+    }
+
+    // One bitmap of accepted positions per attribute the query constrains
+    private Map<Attribute, CompressedBitmap> filters(CatalogQuery query) {
+        Map<Attribute, CompressedBitmap> filters = new EnumMap<>(Attribute.class);
+        if (!query.getCategories().isEmpty()) {
+            List<CompressedBitmap> accepted = new ArrayList<>();
+            for (CourseCategory category : query.getCategories()) {
+                accepted.add(byCategory[category.ordinal()]);
+            }
+            filters.put(Attribute.CATEGORY, CompressedBitmap.or(accepted));
+        }
+        if (!query.getDifficulties().isEmpty()) {
+            List<CompressedBitmap> accepted = new ArrayList<>();
+            for (CourseDifficulty difficulty : query.getDifficulties()) {
+                accepted.add(byDifficulty[difficulty.ordinal()]);
+            }
+            filters.put(Attribute.DIFFICULTY, CompressedBitmap.or(accepted));
+        }
+        if (!query.getProviders().isEmpty()) {
+            List<CompressedBitmap> accepted = new ArrayList<>();
+            for (String provider : query.getProviders()) {
+                CompressedBitmap providerBits = byProvider.get(provider);
+                if (providerBits != null) {
+                    accepted.add(providerBits);
+                }
+            }
+            filters.put(Attribute.PROVIDER, CompressedBitmap.or(accepted));
+        }
+        if (query.getMinAverageRating() > 0) {
+            double min = query.getMinAverageRating();
+            int lowest = ratingBucket(min);
+            List<CompressedBitmap> accepted = new ArrayList<>();
+            accepted.add(boundaryMatches(byRating[lowest], position -> averages[position] >= min));
+            accepted.addAll(Arrays.asList(byRating).subList(lowest + 1, RATING_BUCKETS));
+            filters.put(Attribute.RATING, CompressedBitmap.or(accepted));
+        }
+        if (query.getMinRatingCount() > 0 || query.getMaxRatingCount() < Integer.MAX_VALUE) {
+            int min = query.getMinRatingCount();
+            int max = query.getMaxRatingCount();
+            int lowest = countBand(min);
+            int highest = countBand(max);
+            List<CompressedBitmap> accepted = new ArrayList<>();
+            accepted.add(boundaryMatches(byCountBand[lowest],
+                    position -> counts[position] >= min && counts[position] <= max));
+            if (highest != lowest) {
+                accepted.add(boundaryMatches(byCountBand[highest], position -> counts[position] <= max));
+                accepted.addAll(Arrays.asList(byCountBand).subList(lowest + 1, highest));
+            }
+            filters.put(Attribute.RATING_COUNT, CompressedBitmap.or(accepted));
+        }
+        return filters;
+    }
+
+    // The members of a bucket a range bound falls inside that are really within the range
+    private static CompressedBitmap boundaryMatches(CompressedBitmap bucket, IntPredicate inRange) {
+        CompressedBitmap matches = new CompressedBitmap();
+        bucket.forEach(position -> {
+            if (inRange.test(position)) {
+                matches.add(position);
+            }
+        });
+        return matches;
+    }
+
+    private static int ratingBucket(double averageRating) {
+        return Math.max(0, Math.min(RATING_BUCKETS - 1, (int) Math.floor(averageRating * RATING_BUCKETS_PER_STAR)));
+    }
+
+    private static int countBand(int count) {
+        return count <= 0 ? 0 : 32 - Integer.numberOfLeadingZeros(count);
+    }
+
+    private static CompressedBitmap[] newBitmaps(int count) {
+        CompressedBitmap[] bitmaps = new CompressedBitmap[count];
+        for (int i = 0; i < count; i++) {
+            bitmaps[i] = new CompressedBitmap();
+        }
+        return bitmaps;
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable, versioned view of the course catalog and its category partitions.
+ * Readers grab the current snapshot once and never lock; the engine's single
+ * writer derives a successor and publishes it atomically (copy-on-write).
+ *
+ * Appends reuse the backing arrays when there is spare capacity: slots beyond
+ * a snapshot's size are invisible to it, so only the latest snapshot may be
+ * extended, which the engine guarantees by deriving under its write lock.
+ */
+public final class CatalogSnapshot {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int CATEGORY_COUNT = CourseCategory.values().length;
+
+    private final Course[] courses;
+    private final int size;
+    // Catalog positions per category, indexed by CourseCategory.ordinal()
+    private final int[][] members;
+    private final int[] memberCounts;
+    private final long[] partitionVersions;
+    private final long version;
+
+    private CatalogSnapshot(Course[] courses, int size, int[][] members, int[] memberCounts,
+                            long[] partitionVersions, long version) {
+        this.courses = courses;
+        this.size = size;
+        this.members = members;
+        this.memberCounts = memberCounts;
+        this.partitionVersions = partitionVersions;
+        this.version = version;
+    }
+
+    public static CatalogSnapshot empty() {
+        int[][] members = new int[CATEGORY_COUNT][];
+        for (int c = 0; c < CATEGORY_COUNT; c++) {
+            members[c] = new int[INITIAL_CAPACITY];
+        }
+        return new CatalogSnapshot(new Course[INITIAL_CAPACITY], 0, members,
+                new int[CATEGORY_COUNT], new long[CATEGORY_COUNT], 0);
+    }
+
+    public int size() { return size; }
+    public long version() { return version; }
+
+    public Course get(int position) {
+        if (position < 0 || position >= size) throw new IndexOutOfBoundsException("Position " + position);
+        return courses[position];
+    }
+
+    public int memberCount(CourseCategory category) {
+        return memberCounts[category.ordinal()];
+    }
+
+    public IntStream members(CourseCategory category) {
+        return Arrays.stream(members[category.ordinal()], 0, memberCounts[category.ordinal()]);
+    }
+
+    public long partitionVersion(CourseCategory category) {
+        return partitionVersions[category.ordinal()];
+    }
+
+    // Read-only list view; published slots are never written again
+    public List<Course> asList() {
+        return Collections.unmodifiableList(Arrays.asList(courses).subList(0, size));
+    }
+
+    CatalogSnapshot withAdded(Course course) {
+        Course[] nextCourses = courses;
+        if (size == nextCourses.length) {
+            nextCourses = Arrays.copyOf(courses, size * 2);
+        }
+        nextCourses[size] = course;
+
+        int c = course.getCategory().ordinal();
+        int[][] nextMembers = members.clone();
+        int[] nextCounts = memberCounts.clone();
+        if (nextCounts[c] == nextMembers[c].length) {
+            nextMembers[c] = Arrays.copyOf(nextMembers[c], nextCounts[c] * 2);
+        }
+        nextMembers[c][nextCounts[c]++] = size;
+
+        long[] nextVersions = partitionVersions.clone();
+        nextVersions[c]++;
+        return new CatalogSnapshot(nextCourses, size + 1, nextMembers, nextCounts, nextVersions, version + 1);
+    }
+
+    CatalogSnapshot withReplaced(int position, Course course) {
+        Course previous = get(position);
+        Course[] nextCourses = Arrays.copyOf(courses, courses.length);
+        nextCourses[position] = course;
+
+        int[][] nextMembers = members.clone();
+        int[] nextCounts = memberCounts.clone();
+        long[] nextVersions = partitionVersions.clone();
+        int from = previous.getCategory().ordinal();
+        int to = course.getCategory().ordinal();
+        if (from != to) {
+            nextMembers[from] = withoutPosition(members[from], memberCounts[from], position);
+            nextCounts[from]--;
+            nextMembers[to] = withPosition(members[to], memberCounts[to], position);
+            nextCounts[to]++;
+        }
+        nextVersions[from]++;
+        nextVersions[to]++;
+        return new CatalogSnapshot(nextCourses, size, nextMembers, nextCounts, nextVersions, version + 1);
+    }
+
+    private static int[] withoutPosition(int[] positions, int count, int position) {
+        int[] result = new int[Math.max(INITIAL_CAPACITY, positions.length)];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (positions[i] != position) {
+                result[n++] = positions[i];
+            }
+        }
+        return result;
+    }
+
+    // Keeps partitions in catalog order, which the ordering tie-break relies on
+    private static int[] withPosition(int[] positions, int count, int position) {
+        int[] result = new int[Math.max(count + 1, positions.length)];
+        int insertAt = 0;
+        while (insertAt < count && positions[insertAt] < position) {
+            insertAt++;
+        }
+        System.arraycopy(positions, 0, result, 0, insertAt);
+        result[insertAt] = position;
+        System.arraycopy(positions, insertAt, result, insertAt + 1, count - insertAt);
+        return result;
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.*;
+
+/**
+ * Catalog-wide aggregates maintained incrementally from course events, so
+ * scoring can read normalization inputs without scanning the catalog.
+ */
+public class CatalogStatistics implements Course.ChangeListener {
+    private int courseCount;
+    private long totalEnrollment;
+    private int maxEnrollment;
+    // coursesByEnrollment[e] = number of courses whose enrollment count is exactly e
+    private int[] coursesByEnrollment = new int[16];
+    // Enrollment counts held by at least one course, so finding the next maximum skips empty counts
+    private final BitSet enrollmentLevels = new BitSet();
+
+    private long ratingSum;
+    private long ratingCount;
+    // Per-course averages (rated courses only) lie in [1, 5], so they are counted in fixed buckets
+    // of AVERAGE_RESOLUTION for min/max tracking; the bounds are reported to that resolution
+    private static final double AVERAGE_RESOLUTION = 0.01;
+    private static final int AVERAGE_BUCKETS = (int) Math.round(5 / AVERAGE_RESOLUTION) + 1;
+    private final int[] coursesByAverage = new int[AVERAGE_BUCKETS];
+    private int averagedCourses;
+    // Bucket indexes of the current bounds, meaningful only while averagedCourses > 0
+    private int minAverageBucket;
+    private int maxAverageBucket;
+
+    private final int[] categoryCounts = new int[CourseCategory.values().length];
+
+    public synchronized void addCourse(Course course) {
+        courseCount++;
+        categoryCounts[course.getCategory().ordinal()]++;
+        addEnrollment(course.getEnrollmentCount());
+        if (course.getAverageRating() > 0) {
+            addAverage(course.getAverageRating());
+        }
+        ratingSum += course.getRatingSum();
+        ratingCount += course.getRatingCount();
+    }
+
+    public synchronized void removeCourse(Course course) {
+        courseCount--;
+        categoryCounts[course.getCategory().ordinal()]--;
+        removeEnrollment(course.getEnrollmentCount());
+        if (course.getAverageRating() > 0) {
+            removeAverage(course.getAverageRating());
+        }
+        ratingSum -= course.getRatingSum();
+        ratingCount -= course.getRatingCount();
+    }
+
+    @Override
+    public synchronized void onEnrollmentChanged(Course course, int previousCount) {
+        removeEnrollment(previousCount);
+        addEnrollment(course.getEnrollmentCount());
+    }
+
+    @Override
+    public synchronized void onRatingAdded(Course course, int userOrdinal, int rating, double previousAverage, int previousCount) {
+        ratingSum += rating;
+        ratingCount++;
+        // Ratings are 1-5, so a positive average is the reliable "already rated" signal
+        if (previousAverage > 0) {
+            removeAverage(previousAverage);
+        }
+        addAverage(course.getAverageRating());
+    }
+
+    private void addEnrollment(int enrollment) {
+        if (enrollment >= coursesByEnrollment.length) {
+            coursesByEnrollment = Arrays.copyOf(coursesByEnrollment,
+                    Math.max(enrollment + 1, coursesByEnrollment.length * 2));
+        }
+        if (coursesByEnrollment[enrollment]++ == 0) {
+            enrollmentLevels.set(enrollment);
+        }
+        totalEnrollment += enrollment;
+        if (enrollment > maxEnrollment) {
+            maxEnrollment = enrollment;
+        }
+    }
+
+    private void removeEnrollment(int enrollment) {
+        if (--coursesByEnrollment[enrollment] == 0) {
+            enrollmentLevels.clear(enrollment);
+        }
+        totalEnrollment -= enrollment;
+        // An enrollment step moves the maximum by one, but removing the largest course can drop it
+        // to any lower count; the bit set finds that count 64 levels per word instead of one by one
+        if (enrollment == maxEnrollment && coursesByEnrollment[enrollment] == 0) {
+            maxEnrollment = Math.max(0, enrollmentLevels.previousSetBit(enrollment));
+        }
+    }
+
+    private static int averageBucket(double average) {
+        return Math.max(0, Math.min(AVERAGE_BUCKETS - 1, (int) Math.round(average / AVERAGE_RESOLUTION)));
+    }
+
+    private void addAverage(double average) {
+        int bucket = averageBucket(average);
+        coursesByAverage[bucket]++;
+        if (averagedCourses++ == 0) {
+            minAverageBucket = bucket;
+            maxAverageBucket = bucket;
+        } else {
+            minAverageBucket = Math.min(minAverageBucket, bucket);
+            maxAverageBucket = Math.max(maxAverageBucket, bucket);
+        }
+    }
+
+    private void removeAverage(double average) {
+        int bucket = averageBucket(average);
+        if (coursesByAverage[bucket] == 0) return;
+        coursesByAverage[bucket]--;
+        if (--averagedCourses == 0) return;
+        // At most AVERAGE_BUCKETS steps, whatever the catalog size
+        while (coursesByAverage[minAverageBucket] == 0) {
+            minAverageBucket++;
+        }
+        while (coursesByAverage[maxAverageBucket] == 0) {
+            maxAverageBucket--;
+        }
+    }
+
+    // Getters
+    public synchronized int getCourseCount() { return courseCount; }
+    public synchronized int getMaxEnrollment() { return maxEnrollment; }
+    public synchronized long getTotalEnrollment() { return totalEnrollment; }
+    public synchronized double getMinAverageRating() {
+        return averagedCourses > 0 ? minAverageBucket * AVERAGE_RESOLUTION : 0.0;
+    }
+    public synchronized double getMaxAverageRating() {
+        return averagedCourses > 0 ? maxAverageBucket * AVERAGE_RESOLUTION : 0.0;
+    }
+    public synchronized long getRatingCount() { return ratingCount; }
+    public synchronized double getMeanRating() {
+        return ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0;
+    }
+    public synchronized int getCategoryCount(CourseCategory category) {
+        return categoryCounts[category.ordinal()];
+    }
+    public synchronized Map<CourseCategory, Integer> getCategoryCounts() {
+        Map<CourseCategory, Integer> counts = new EnumMap<>(CourseCategory.class);
+        for (CourseCategory category : CourseCategory.values()) {
+            counts.put(category, categoryCounts[category.ordinal()]);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.*;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Keeps, per course category, an ordering of that category's catalog positions
+ * by the user-independent part of the recommendation score. Within one category
+ * every course gets the same interest bonus, so that ordering is also the final
+ * ranking and a top-K can stop after k hits. Partition membership itself lives
+ * in the CatalogSnapshot the ordering was built from.
+ */
+public class CategoryIndex implements Course.ChangeListener {
+    private final EnumMap<CourseCategory, Partition> partitions = new EnumMap<>(CourseCategory.class);
+
+    public CategoryIndex() {
+        for (CourseCategory category : CourseCategory.values()) {
+            partitions.put(category, new Partition());
+        }
+    }
+
+    // Precomputed descending ordering of one partition
+    public static final class Ordering {
+        private final int[] positions;
+        private final double[] scores;
+
+        private Ordering(int[] positions, double[] scores) {
+            this.positions = positions;
+            this.scores = scores;
+        }
+
+        public int size() { return positions.length; }
+        public int positionAt(int rank) { return positions[rank]; }
+        public double scoreAt(int rank) { return scores[rank]; }
+    }
+
+    // Each partition is guarded by its own monitor so categories never contend
+    private static final class Partition {
+        private long modCount;
+
+        private Ordering ordering;
+        private long orderedModCount = -1;
+        private long orderedPartitionVersion = -1;
+        private int orderedMaxEnrollment;
+        private long orderedDay;
+        // modCount / partition version at which a request last found the ordering stale
+        private long staleSeenModCount = -1;
+        private long staleSeenPartitionVersion = -1;
+
+        private boolean isFresh(long partitionVersion, int maxEnrollment, long day) {
+            return ordering != null && orderedModCount == modCount
+                    && orderedPartitionVersion == partitionVersion
+                    && orderedMaxEnrollment == maxEnrollment && orderedDay == day;
+        }
+    }
+
+    /**
+     * Returns the partition ordering if it is current. A stale ordering is only
+     * rebuilt once a request has already seen it stale with no writes since, so
+     * write-heavy partitions fall back to scanning instead of re-sorting each time.
+     *
+     * The delay is deliberate. The first stale reader gets null and scans, which
+     * costs one pass over the catalog and never a wrong result. Rebuilding then
+     * would sort the partition, several times the cost of that pass, and a write
+     * to the partition before the next read would throw the sort away. Waiting
+     * for a second read with no write in between bounds the wasted work to one
+     * scan per write burst, and a partition that has gone quiet is sorted on its
+     * second request.
+     */
+    public Ordering orderingIfReady(CatalogSnapshot catalog, CourseCategory category, int maxEnrollment, long day,
+                                    IntToDoubleFunction staticScore) {
+        Partition partition = partitions.get(category);
+        long partitionVersion = catalog.partitionVersion(category);
+        synchronized (partition) {
+            if (partition.isFresh(partitionVersion, maxEnrollment, day)) {
+                return partition.ordering;
+            }
+            if (partition.staleSeenModCount != partition.modCount
+                    || partition.staleSeenPartitionVersion != partitionVersion) {
+                partition.staleSeenModCount = partition.modCount;
+                partition.staleSeenPartitionVersion = partitionVersion;
+                return null;
+            }
+            partition.ordering = buildOrdering(catalog.members(category).toArray(), staticScore);
+            partition.orderedModCount = partition.modCount;
+            partition.orderedPartitionVersion = partitionVersion;
+            partition.orderedMaxEnrollment = maxEnrollment;
+            partition.orderedDay = day;
+            return partition.ordering;
+        }
+    }
+
+    private Ordering buildOrdering(int[] members, IntToDoubleFunction staticScore) {
+        int size = members.length;
+        double[] memberScores = new double[size];
+        for (int i = 0; i < size; i++) {
+            memberScores[i] = staticScore.applyAsDouble(members[i]);
+        }
+        // Distinct scores, best first, so a member's score is a small rank that packs into a long
+        double[] distinct = memberScores.clone();
+        Arrays.sort(distinct);
+        int distinctCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinctCount == 0 || Double.compare(distinct[distinctCount - 1], distinct[i]) != 0) {
+                distinct[distinctCount++] = distinct[i];
+            }
+        }
+        // (score rank << 32 | position) sorts by descending score, then ascending position
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            long scoreRank = distinctCount - 1 - Arrays.binarySearch(distinct, 0, distinctCount, memberScores[i]);
+            keys[i] = (scoreRank << 32) | members[i];
+        }
+        Arrays.sort(keys);
+
+        int[] positions = new int[size];
+        double[] scores = new double[size];
+        for (int rank = 0; rank < size; rank++) {
+            positions[rank] = (int) keys[rank];
+            scores[rank] = distinct[distinctCount - 1 - (int) (keys[rank] >>> 32)];
+        }
+        return new Ordering(positions, scores);
+    }
+
+    private void markChanged(CourseCategory category) {
+        Partition partition = partitions.get(category);
+        synchronized (partition) {
+            partition.modCount++;
+        }
+    }
+
+    @Override
+    public void onEnrollmentChanged(Course course, int previousCount) {
+        markChanged(course.getCategory());
+    }
+
+    @Override
+    public void onRatingAdded(Course course, int userOrdinal, int rating, double previousAverage, int previousCount) {
+        markChanged(course.getCategory());
+    }
+}
@@ -0,0 +1,325 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Course co-occurrence counts: how many learners took (enrolled in or completed)
+ * both of two courses. The bulk of the graph is an immutable compressed sparse
+ * row (CSR) structure built in parallel from every known user; enrollment events
+ * afterwards accumulate in small per-course delta rows that are folded into a
+ * fresh CSR once they grow past a fraction of the base.
+ *
+ * Writers are serialized on the graph. Readers never lock: the base and its
+ * delta rows are published together, each delta row is immutable and replaced
+ * whole, and a compaction publishes a new base with fresh, empty delta rows.
+ */
+public class CoEnrollmentGraph implements User.ChangeListener {
+    // Pairs grow quadratically with a learner's course count, so only this many of each count
+    static final int MAX_COURSES_PER_USER = 200;
+    private static final int MIN_DELTAS_BEFORE_COMPACTION = 1024;
+    private static final int[] NO_ENTRIES = new int[0];
+
+    // Immutable CSR: row c spans [offsets[c], offsets[c + 1]) of neighbors/counts, neighbors ascending
+    private static final class Csr {
+        private static final Csr EMPTY = new Csr(new int[1], new int[0], new int[0]);
+
+        private final int[] offsets;
+        private final int[] neighbors;
+        private final int[] counts;
+
+        private Csr(int[] offsets, int[] neighbors, int[] counts) {
+            this.offsets = offsets;
+            this.neighbors = neighbors;
+            this.counts = counts;
+        }
+
+        private int rows() { return offsets.length - 1; }
+    }
+
+    // Immutable count changes for one course since the base was built, neighbors ascending, no zeros
+    private static final class DeltaRow {
+        private final int[] neighbors;
+        private final int[] changes;
+
+        private DeltaRow(int[] neighbors, int[] changes) {
+            this.neighbors = neighbors;
+            this.changes = changes;
+        }
+    }
+
+    // A base and the delta rows on top of it, swapped together so readers never see one without the other
+    private static final class State {
+        private final Csr base;
+        private final OrdinalTable<DeltaRow> deltas;
+
+        private State(Csr base) {
+            this.base = base;
+            this.deltas = new OrdinalTable<>();
+        }
+    }
+
+    private volatile State state = new State(Csr.EMPTY);
+    // Count changes applied since the last compaction
+    private int deltaCount;
+    // Users whose courses are already counted, so re-registering one never counts them twice
+    private final BitSet contributors = new BitSet();
+
+    /**
+     * Rebuilds the graph from scratch. Each user's pair keys are generated in
+     * parallel, sorted in parallel and run-length counted into the CSR rows.
+     */
+    public synchronized void rebuild(Collection<User> users) {
+        long[][] perUser = users.parallelStream()
+                .map(CoEnrollmentGraph::pairKeys)
+                .toArray(long[][]::new);
+        int[] starts = new int[perUser.length + 1];
+        for (int u = 0; u < perUser.length; u++) {
+            starts[u + 1] = Math.addExact(starts[u], perUser[u].length);
+        }
+        long[] keys = new long[starts[perUser.length]];
+        IntStream.range(0, perUser.length).parallel()
+                .forEach(u -> System.arraycopy(perUser[u], 0, keys, starts[u], perUser[u].length));
+        Arrays.parallelSort(keys);
+
+        state = new State(toCsr(keys, IdDictionary.COURSES.size()));
+        deltaCount = 0;
+        contributors.clear();
+        for (User user : users) {
+            contributors.set(user.getOrdinal());
+        }
+    }
+
+    // Counts a user who was not part of the last rebuild, e.g. one who registered since
+    public synchronized void addUser(User user) {
+        if (contributors.get(user.getOrdinal())) return;
+        contributors.set(user.getOrdinal());
+        int[] courses = takenCourses(user);
+        for (int a = 0; a < courses.length; a++) {
+            addDeltas(courses[a], without(courses, a), 1);
+        }
+        compactIfNeeded();
+    }
+
+    // The user's first MAX_COURSES_PER_USER courses by ordinal, the only ones that pair up
+    private static int[] takenCourses(User user) {
+        int[] courses = allTakenCourses(user);
+        return courses.length > MAX_COURSES_PER_USER ? Arrays.copyOf(courses, MAX_COURSES_PER_USER) : courses;
+    }
+
+    // Ascending by ordinal
+    private static int[] allTakenCourses(User user) {
+        IntStream.Builder courses = IntStream.builder();
+        user.forEachTakenCourse(courses::add);
+        return courses.build().toArray();
+    }
+
+    // A copy of courses without the entry at index skip
+    private static int[] without(int[] courses, int skip) {
+        int[] others = new int[courses.length - 1];
+        System.arraycopy(courses, 0, others, 0, skip);
+        System.arraycopy(courses, skip + 1, others, skip, others.length - skip);
+        return others;
+    }
+
+    // Both directions of every pair of the user's courses, as (course << 32 | other)
+    private static long[] pairKeys(User user) {
+        int[] courses = takenCourses(user);
+        long[] keys = new long[courses.length * Math.max(0, courses.length - 1)];
+        int n = 0;
+        for (int a : courses) {
+            for (int b : courses) {
+                if (a != b) keys[n++] = ((long) a << 32) | b;
+            }
+        }
+        return keys;
+    }
+
+    private static Csr toCsr(long[] sortedKeys, int rows) {
+        int[] offsets = new int[rows + 1];
+        int[] neighbors = new int[sortedKeys.length];
+        int[] counts = new int[sortedKeys.length];
+        int edges = 0;
+        for (int i = 0; i < sortedKeys.length; ) {
+            long key = sortedKeys[i];
+            int run = 0;
+            while (i < sortedKeys.length && sortedKeys[i] == key) {
+                run++;
+                i++;
+            }
+            offsets[(int) (key >>> 32) + 1]++;
+            neighbors[edges] = (int) key;
+            counts[edges] = run;
+            edges++;
+        }
+        for (int c = 0; c < rows; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        return new Csr(offsets, Arrays.copyOf(neighbors, edges), Arrays.copyOf(counts, edges));
+    }
+
+    private void addDelta(int course, int other, int change) {
+        addDeltas(course, new int[]{other}, change);
+    }
+
+    // Applies change to the course's count with each of others (ascending) by replacing its delta row
+    private void addDeltas(int course, int[] others, int change) {
+        if (others.length == 0) return;
+        OrdinalTable<DeltaRow> deltas = state.deltas;
+        DeltaRow row = deltas.get(course);
+        int[] rowNeighbors = row == null ? NO_ENTRIES : row.neighbors;
+        int[] rowChanges = row == null ? NO_ENTRIES : row.changes;
+        int[] neighbors = new int[rowNeighbors.length + others.length];
+        int[] changes = new int[neighbors.length];
+        int n = 0;
+        int r = 0;
+        int o = 0;
+        while (r < rowNeighbors.length || o < others.length) {
+            int neighbor;
+            int total;
+            if (o == others.length || (r < rowNeighbors.length && rowNeighbors[r] < others[o])) {
+                neighbor = rowNeighbors[r];
+                total = rowChanges[r++];
+            } else if (r == rowNeighbors.length || others[o] < rowNeighbors[r]) {
+                neighbor = others[o++];
+                total = change;
+            } else {
+                neighbor = others[o++];
+                total = rowChanges[r++] + change;
+            }
+            // Changes that cancel out are dropped, so a row holds only what differs from the base
+            if (total != 0) {
+                neighbors[n] = neighbor;
+                changes[n++] = total;
+            }
+        }
+        deltas.put(course, new DeltaRow(Arrays.copyOf(neighbors, n), Arrays.copyOf(changes, n)));
+        deltaCount += others.length;
+    }
+
+    private void compactIfNeeded() {
+        State current = state;
+        Csr base = current.base;
+        if (deltaCount < Math.max(MIN_DELTAS_BEFORE_COMPACTION, base.neighbors.length / 8)) return;
+        int rows = Math.max(base.rows(), IdDictionary.COURSES.size());
+        int[] offsets = new int[rows + 1];
+        int[] neighbors = new int[base.neighbors.length + deltaCount];
+        int[] counts = new int[neighbors.length];
+        int edges = 0;
+        for (int c = 0; c < rows; c++) {
+            int e = c < base.rows() ? base.offsets[c] : 0;
+            int to = c < base.rows() ? base.offsets[c + 1] : 0;
+            DeltaRow delta = current.deltas.get(c);
+            int[] deltaNeighbors = delta == null ? NO_ENTRIES : delta.neighbors;
+            int[] deltaChanges = delta == null ? NO_ENTRIES : delta.changes;
+            int d = 0;
+            // Both sides are ascending, so the row is a merge; untouched rows are copied as they are
+            while (e < to || d < deltaNeighbors.length) {
+                int neighbor;
+                int count;
+                if (d == deltaNeighbors.length || (e < to && base.neighbors[e] < deltaNeighbors[d])) {
+                    neighbor = base.neighbors[e];
+                    count = base.counts[e++];
+                } else if (e == to || deltaNeighbors[d] < base.neighbors[e]) {
+                    neighbor = deltaNeighbors[d];
+                    count = deltaChanges[d++];
+                } else {
+                    neighbor = deltaNeighbors[d];
+                    count = base.counts[e++] + deltaChanges[d++];
+                }
+                if (count > 0) {
+                    neighbors[edges] = neighbor;
+                    counts[edges] = count;
+                    edges++;
+                }
+            }
+            offsets[c + 1] = edges;
+        }
+        state = new State(new Csr(offsets, Arrays.copyOf(neighbors, edges), Arrays.copyOf(counts, edges)));
+        deltaCount = 0;
+    }
+
+    /**
+     * The k courses most often taken together with the given one, most frequent
+     * first (ties by lower ordinal), as parallel arrays of ordinals and counts.
+     * Lock-free: reads one published base and its delta row.
+     */
+    public int[][] alsoTaken(int courseOrdinal, int k) {
+        if (k <= 0) throw new IllegalArgumentException("k must be positive");
+        State current = state;
+        Csr csr = current.base;
+        int e = 0;
+        int to = 0;
+        if (courseOrdinal >= 0 && courseOrdinal < csr.rows()) {
+            e = csr.offsets[courseOrdinal];
+            to = csr.offsets[courseOrdinal + 1];
+        }
+        DeltaRow delta = current.deltas.get(courseOrdinal);
+        int[] deltaNeighbors = delta == null ? NO_ENTRIES : delta.neighbors;
+        int[] deltaChanges = delta == null ? NO_ENTRIES : delta.changes;
+
+        TopKSelector top = new TopKSelector(k);
+        int d = 0;
+        while (e < to || d < deltaNeighbors.length) {
+            int neighbor;
+            int count;
+            if (d == deltaNeighbors.length || (e < to && csr.neighbors[e] < deltaNeighbors[d])) {
+                neighbor = csr.neighbors[e];
+                count = csr.counts[e++];
+            } else if (e == to || deltaNeighbors[d] < csr.neighbors[e]) {
+                neighbor = deltaNeighbors[d];
+                count = deltaChanges[d++];
+            } else {
+                neighbor = deltaNeighbors[d];
+                count = csr.counts[e++] + deltaChanges[d++];
+            }
+            if (count > 0) {
+                top.offer(count, neighbor);
+            }
+        }
+        int[] courses = top.toSortedIndices();
+        double[] scores = top.toSortedScores();
+        int[] counts = new int[courses.length];
+        for (int i = 0; i < courses.length; i++) {
+            counts[i] = (int) scores[i];
+        }
+        return new int[][]{courses, counts};
+    }
+
+    @Override
+    public synchronized void onUserChanged(User user, User.ChangeType type, String courseId, int value) {
+        // Completing only moves a course the user already took; enrolling and dropping change the set
+        if (type != User.ChangeType.ENROLLED && type != User.ChangeType.UNENROLLED) return;
+        if (!contributors.get(user.getOrdinal())) return;
+        int course = IdDictionary.COURSES.intern(courseId);
+        // Enrolling in or dropping a course the user has completed leaves it taken
+        if (user.hasCompletedCourse(course)) return;
+        int change = type == User.ChangeType.ENROLLED ? 1 : -1;
+        // The taken courses with this one among them: after enrolling, or before dropping it
+        int[] taken = allTakenCourses(user);
+        int rank = Arrays.binarySearch(taken, course);
+        if (rank < 0) {
+            rank = -rank - 1;
+            if (change > 0) return;
+            int[] withCourse = new int[taken.length + 1];
+            System.arraycopy(taken, 0, withCourse, 0, rank);
+            withCourse[rank] = course;
+            System.arraycopy(taken, rank, withCourse, rank + 1, taken.length - rank);
+            taken = withCourse;
+        }
+        // Capped as rebuild caps it: a course past the first MAX_COURSES_PER_USER never pairs up
+        if (rank >= MAX_COURSES_PER_USER) return;
+        int[] others = without(Arrays.copyOf(taken, Math.min(taken.length, MAX_COURSES_PER_USER)), rank);
+        addDeltas(course, others, change);
+        // Taking it pushes the last course out of the capped set; dropping it lets that course back in
+        int displaced = taken.length > MAX_COURSES_PER_USER ? taken[MAX_COURSES_PER_USER] : -1;
+        if (displaced >= 0) {
+            addDeltas(displaced, others, -change);
+        }
+        for (int other : others) {
+            addDelta(other, course, change);
+            if (displaced >= 0) {
+                addDelta(other, displaced, -change);
+            }
+        }
+        compactIfNeeded();
+    }
+}
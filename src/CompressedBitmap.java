@@ -0,0 +1,423 @@
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of non-negative ints split into 65536-wide chunks, roaring-style. A chunk
+ * holding few values stores them as a sorted char array; once it passes 4096
+ * values it switches to a 1024-word bitmap, which is then the smaller of the two.
+ * Both forms use at most 8 KB per chunk, so a sparse attribute over a large
+ * catalog costs about two bytes per member and a dense one an eighth of a byte.
+ *
+ * Not thread-safe: owners serialize access (see CatalogQueryIndex).
+ */
+public final class CompressedBitmap {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+    // Above this many values an array chunk would outgrow a bitmap chunk
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = (1 << CHUNK_BITS) / 64;
+
+    // One chunk: values (low 16 bits) sorted in an array, or bits in a bitmap
+    private static final class Chunk {
+        private char[] values;
+        private long[] words;
+        private int cardinality;
+
+        private static Chunk ofArray(char[] values, int cardinality) {
+            Chunk chunk = new Chunk();
+            chunk.values = values;
+            chunk.cardinality = cardinality;
+            return chunk;
+        }
+
+        private static Chunk ofWords(long[] words, int cardinality) {
+            Chunk chunk = new Chunk();
+            chunk.words = words;
+            chunk.cardinality = cardinality;
+            return chunk;
+        }
+
+        private boolean contains(char low) {
+            if (words != null) {
+                return (words[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        // Returns false if the value was already present
+        private boolean add(char low) {
+            if (words != null) {
+                long before = words[low >>> 6];
+                words[low >>> 6] = before | (1L << low);
+                if (before == words[low >>> 6]) return false;
+                cardinality++;
+                return true;
+            }
+            int at = Arrays.binarySearch(values, 0, cardinality, low);
+            if (at >= 0) return false;
+            if (cardinality == ARRAY_MAX) {
+                words = toWords();
+                values = null;
+                return add(low);
+            }
+            at = -at - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, at, values, at + 1, cardinality - at);
+            values[at] = low;
+            cardinality++;
+            return true;
+        }
+
+        // Returns false if the value was absent
+        private boolean remove(char low) {
+            if (words != null) {
+                long before = words[low >>> 6];
+                words[low >>> 6] = before & ~(1L << low);
+                if (before == words[low >>> 6]) return false;
+                if (--cardinality == ARRAY_MAX) {
+                    values = toValues(words, cardinality);
+                    words = null;
+                }
+                return true;
+            }
+            int at = Arrays.binarySearch(values, 0, cardinality, low);
+            if (at < 0) return false;
+            System.arraycopy(values, at + 1, values, at, cardinality - at - 1);
+            cardinality--;
+            return true;
+        }
+
+        private long[] toWords() {
+            long[] result = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                result[values[i] >>> 6] |= 1L << values[i];
+            }
+            return result;
+        }
+
+        private void forEach(int high, IntConsumer action) {
+            if (words == null) {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(high | values[i]);
+                }
+                return;
+            }
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    private char[] keys = new char[4];
+    private Chunk[] chunks = new Chunk[4];
+    private int chunkCount;
+
+    public boolean add(int value) {
+        if (value < 0) throw new IllegalArgumentException("Value cannot be negative");
+        char key = (char) (value >>> CHUNK_BITS);
+        int at = Arrays.binarySearch(keys, 0, chunkCount, key);
+        if (at < 0) {
+            at = -at - 1;
+            if (chunkCount == keys.length) {
+                keys = Arrays.copyOf(keys, chunkCount * 2);
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            System.arraycopy(keys, at, keys, at + 1, chunkCount - at);
+            System.arraycopy(chunks, at, chunks, at + 1, chunkCount - at);
+            keys[at] = key;
+            chunks[at] = Chunk.ofArray(new char[4], 0);
+            chunkCount++;
+        }
+        return chunks[at].add((char) (value & CHUNK_MASK));
+    }
+
+    public boolean remove(int value) {
+        if (value < 0) return false;
+        int at = Arrays.binarySearch(keys, 0, chunkCount, (char) (value >>> CHUNK_BITS));
+        if (at < 0 || !chunks[at].remove((char) (value & CHUNK_MASK))) return false;
+        if (chunks[at].cardinality == 0) {
+            System.arraycopy(keys, at + 1, keys, at, chunkCount - at - 1);
+            System.arraycopy(chunks, at + 1, chunks, at, chunkCount - at - 1);
+            chunks[--chunkCount] = null;
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) return false;
+        int at = Arrays.binarySearch(keys, 0, chunkCount, (char) (value >>> CHUNK_BITS));
+        return at >= 0 && chunks[at].contains((char) (value & CHUNK_MASK));
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int c = 0; c < chunkCount; c++) {
+            cardinality += chunks[c].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return chunkCount == 0;
+    }
+
+    // Ascending order
+    public void forEach(IntConsumer action) {
+        for (int c = 0; c < chunkCount; c++) {
+            chunks[c].forEach(keys[c] << CHUNK_BITS, action);
+        }
+    }
+
+    public CompressedBitmap copy() {
+        CompressedBitmap copy = new CompressedBitmap();
+        copy.keys = Arrays.copyOf(keys, Math.max(4, chunkCount));
+        copy.chunks = new Chunk[copy.keys.length];
+        for (int c = 0; c < chunkCount; c++) {
+            copy.chunks[c] = copyOf(chunks[c]);
+        }
+        copy.chunkCount = chunkCount;
+        return copy;
+    }
+
+    public static CompressedBitmap and(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.chunkCount && j < b.chunkCount) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Chunk chunk = and(a.chunks[i], b.chunks[j]);
+                if (chunk.cardinality > 0) {
+                    result.append(a.keys[i], chunk);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static CompressedBitmap or(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.chunkCount || j < b.chunkCount) {
+            if (j == b.chunkCount || (i < a.chunkCount && a.keys[i] < b.keys[j])) {
+                result.append(a.keys[i], copyOf(a.chunks[i]));
+                i++;
+            } else if (i == a.chunkCount || b.keys[j] < a.keys[i]) {
+                result.append(b.keys[j], copyOf(b.chunks[j]));
+                j++;
+            } else {
+                result.append(a.keys[i], or(a.chunks[i], b.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // Union of any number of bitmaps in one pass per chunk, instead of a chain of pairwise ORs
+    public static CompressedBitmap or(List<CompressedBitmap> bitmaps) {
+        CompressedBitmap result = new CompressedBitmap();
+        int[] cursors = new int[bitmaps.size()];
+        long[] words = new long[BITMAP_WORDS];
+        while (true) {
+            int key = Integer.MAX_VALUE;
+            for (int b = 0; b < cursors.length; b++) {
+                CompressedBitmap bitmap = bitmaps.get(b);
+                if (cursors[b] < bitmap.chunkCount) {
+                    key = Math.min(key, bitmap.keys[cursors[b]]);
+                }
+            }
+            if (key == Integer.MAX_VALUE) return result;
+            Arrays.fill(words, 0);
+            for (int b = 0; b < cursors.length; b++) {
+                CompressedBitmap bitmap = bitmaps.get(b);
+                if (cursors[b] < bitmap.chunkCount && bitmap.keys[cursors[b]] == key) {
+                    Chunk chunk = bitmap.chunks[cursors[b]++];
+                    if (chunk.words != null) {
+                        for (int w = 0; w < BITMAP_WORDS; w++) {
+                            words[w] |= chunk.words[w];
+                        }
+                    } else {
+                        for (int i = 0; i < chunk.cardinality; i++) {
+                            words[chunk.values[i] >>> 6] |= 1L << chunk.values[i];
+                        }
+                    }
+                }
+            }
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            result.append((char) key, cardinality > ARRAY_MAX ? Chunk.ofWords(words.clone(), cardinality)
+                    : Chunk.ofArray(toValues(words, cardinality), cardinality));
+        }
+    }
+
+    // |a AND b| without building the intersection, for facet counts
+    public static int andCardinality(CompressedBitmap a, CompressedBitmap b) {
+        int cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.chunkCount && j < b.chunkCount) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                cardinality += andCardinality(a.chunks[i], b.chunks[j]);
+                i++;
+                j++;
+            }
+        }
+        return cardinality;
+    }
+
+    private void append(char key, Chunk chunk) {
+        if (chunkCount == keys.length) {
+            keys = Arrays.copyOf(keys, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        keys[chunkCount] = key;
+        chunks[chunkCount++] = chunk;
+    }
+
+    private static Chunk copyOf(Chunk chunk) {
+        return chunk.words != null
+                ? Chunk.ofWords(chunk.words.clone(), chunk.cardinality)
+                : Chunk.ofArray(Arrays.copyOf(chunk.values, chunk.cardinality), chunk.cardinality);
+    }
+
+    private static Chunk and(Chunk a, Chunk b) {
+        if (a.words != null && b.words != null) {
+            long[] words = new long[BITMAP_WORDS];
+            int cardinality = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] = a.words[w] & b.words[w];
+                cardinality += Long.bitCount(words[w]);
+            }
+            return cardinality > ARRAY_MAX ? Chunk.ofWords(words, cardinality)
+                    : Chunk.ofArray(toValues(words, cardinality), cardinality);
+        }
+        // At least one side is an array, so the result fits in one
+        Chunk array = a.words == null ? a : b;
+        Chunk other = array == a ? b : a;
+        char[] values = new char[Math.min(a.cardinality, b.cardinality)];
+        int cardinality = 0;
+        if (other.words != null) {
+            for (int i = 0; i < array.cardinality; i++) {
+                if (other.contains(array.values[i])) {
+                    values[cardinality++] = array.values[i];
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < a.cardinality && j < b.cardinality) {
+                if (a.values[i] < b.values[j]) {
+                    i++;
+                } else if (a.values[i] > b.values[j]) {
+                    j++;
+                } else {
+                    values[cardinality++] = a.values[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Chunk.ofArray(values, cardinality);
+    }
+
+    private static Chunk or(Chunk a, Chunk b) {
+        if (a.words == null && b.words == null && a.cardinality + b.cardinality <= ARRAY_MAX) {
+            char[] values = new char[a.cardinality + b.cardinality];
+            int cardinality = 0;
+            int i = 0;
+            int j = 0;
+            while (i < a.cardinality || j < b.cardinality) {
+                if (j == b.cardinality || (i < a.cardinality && a.values[i] < b.values[j])) {
+                    values[cardinality++] = a.values[i++];
+                } else if (i == a.cardinality || b.values[j] < a.values[i]) {
+                    values[cardinality++] = b.values[j++];
+                } else {
+                    values[cardinality++] = a.values[i++];
+                    j++;
+                }
+            }
+            return Chunk.ofArray(values, cardinality);
+        }
+        long[] words = a.words != null ? a.words.clone() : a.toWords();
+        if (b.words != null) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] |= b.words[w];
+            }
+        } else {
+            for (int i = 0; i < b.cardinality; i++) {
+                words[b.values[i] >>> 6] |= 1L << b.values[i];
+            }
+        }
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        return cardinality > ARRAY_MAX ? Chunk.ofWords(words, cardinality)
+                : Chunk.ofArray(toValues(words, cardinality), cardinality);
+    }
+
+    private static int andCardinality(Chunk a, Chunk b) {
+        if (a.words != null && b.words != null) {
+            int cardinality = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                cardinality += Long.bitCount(a.words[w] & b.words[w]);
+            }
+            return cardinality;
+        }
+        Chunk array = a.words == null ? a : b;
+        Chunk other = array == a ? b : a;
+        int cardinality = 0;
+        if (other.words != null) {
+            for (int i = 0; i < array.cardinality; i++) {
+                if (other.contains(array.values[i])) cardinality++;
+            }
+            return cardinality;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < a.cardinality && j < b.cardinality) {
+            if (a.values[i] < b.values[j]) {
+                i++;
+            } else if (a.values[i] > b.values[j]) {
+                j++;
+            } else {
+                cardinality++;
+                i++;
+                j++;
+            }
+        }
+        return cardinality;
+    }
+
+    private static char[] toValues(long[] words, int cardinality) {
+        char[] values = new char[Math.max(4, cardinality)];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+}
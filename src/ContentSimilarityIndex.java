@@ -0,0 +1,284 @@
+import java.util.*;
+
+/**
+ * Content-based "more like this": every course's title and description become a
+ * sparse TF-IDF vector, and each course keeps its top-N most cosine-similar
+ * courses. Candidates come from an inverted index (term -> courses), so only
+ * courses sharing a term are ever compared, never all pairs.
+ *
+ * Indexing a course computes its own neighbour list and pushes it into the lists
+ * of its candidates where it beats their weakest entry. Re-indexing a course
+ * first withdraws its old text; lists that held it are marked stale and rebuilt
+ * on their next read. IDF moves as the catalog grows, so a list is also rebuilt
+ * on read once the catalog has grown by a quarter since it was computed.
+ *
+ * Writers are serialized on this index; readers only lock to rebuild a stale list.
+ */
+public class ContentSimilarityIndex {
+    public static final int DEFAULT_NEIGHBORS = 20;
+    // Terms in more courses than this carry little IDF and would make every add scan
+    // much of the catalog, so they still count towards similarity but never nominate candidates
+    static final int MAX_CANDIDATE_POSTINGS = 1000;
+    // Title words say more about a course than description words
+    private static final int TITLE_TERM_WEIGHT = 2;
+
+    private final int neighborCount;
+    private final Map<String, Integer> termIds = new HashMap<>();
+    // Per term ID: the ordinals of the courses containing it, in no particular order
+    private int[][] postings = new int[16][];
+    private int[] postingSizes = new int[16];
+    private final OrdinalTable<Document> documents = new OrdinalTable<>();
+    private volatile int documentCount;
+    // Candidate dedup for a single neighbour computation, only touched under the index monitor
+    private int[] seenStamps = new int[16];
+    private int stamp;
+
+    public ContentSimilarityIndex(int neighborCount) {
+        if (neighborCount <= 0) throw new IllegalArgumentException("Neighbor count must be positive");
+        this.neighborCount = neighborCount;
+    }
+
+    // One course's term vector, term IDs ascending, plus its published neighbour list
+    private static final class Document {
+        private final int[] terms;
+        private final int[] frequencies;
+        private volatile int[] neighbors = new int[0];
+        private volatile float[] similarities = new float[0];
+        private volatile boolean neighborsStale;
+        // Catalog size the list was fully computed at
+        private volatile int computedAtCount;
+
+        private Document(int[] terms, int[] frequencies) {
+            this.terms = terms;
+            this.frequencies = frequencies;
+        }
+    }
+
+    // Indexes a course's text, replacing whatever was indexed under its ID
+    public synchronized void indexCourse(Course course) {
+        int ordinal = course.getOrdinal();
+        Document previous = documents.get(ordinal);
+        if (previous != null) {
+            withdraw(ordinal, previous);
+        }
+        Document document = toDocument(course);
+        documents.put(ordinal, document);
+        for (int term : document.terms) {
+            addPosting(term, ordinal);
+        }
+        documentCount++;
+
+        TopKSelector top = new TopKSelector(neighborCount);
+        for (int candidate : candidates(ordinal, document)) {
+            Document other = documents.get(candidate);
+            double similarity = cosine(document, other);
+            if (similarity <= 0.0) continue;
+            top.offer(similarity, candidate);
+            if (!other.neighborsStale) {
+                offerNeighbor(other, ordinal, similarity);
+            }
+        }
+        publish(document, top);
+        document.computedAtCount = documentCount;
+    }
+
+    private Document toDocument(Course course) {
+        Map<Integer, Integer> counts = new TreeMap<>();
+        for (String token : TextTokenizer.tokenize(course.getTitle())) {
+            counts.merge(termId(token), TITLE_TERM_WEIGHT, Integer::sum);
+        }
+        for (String token : TextTokenizer.tokenize(course.getDescription())) {
+            counts.merge(termId(token), 1, Integer::sum);
+        }
+        int[] terms = new int[counts.size()];
+        int[] frequencies = new int[counts.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            terms[i] = entry.getKey();
+            frequencies[i++] = entry.getValue();
+        }
+        return new Document(terms, frequencies);
+    }
+
+    private int termId(String token) {
+        Integer id = termIds.get(token);
+        if (id != null) return id;
+        int next = termIds.size();
+        termIds.put(token, next);
+        if (next == postings.length) {
+            postings = Arrays.copyOf(postings, next * 2);
+            postingSizes = Arrays.copyOf(postingSizes, next * 2);
+        }
+        postings[next] = new int[4];
+        return next;
+    }
+
+    private void addPosting(int term, int ordinal) {
+        int size = postingSizes[term];
+        if (size == postings[term].length) {
+            postings[term] = Arrays.copyOf(postings[term], size * 2);
+        }
+        postings[term][size] = ordinal;
+        postingSizes[term] = size + 1;
+    }
+
+    // Drops the old text from the postings and from every list that may hold it
+    private void withdraw(int ordinal, Document previous) {
+        for (int term : previous.terms) {
+            int[] posting = postings[term];
+            int size = postingSizes[term];
+            for (int i = 0; i < size; i++) {
+                if (posting[i] == ordinal) {
+                    // Order within a posting list does not matter, so swap-remove
+                    posting[i] = posting[size - 1];
+                    postingSizes[term] = size - 1;
+                    break;
+                }
+            }
+        }
+        documentCount--;
+        for (int candidate : candidates(ordinal, previous)) {
+            Document other = documents.get(candidate);
+            for (int neighbor : other.neighbors) {
+                if (neighbor == ordinal) {
+                    other.neighborsStale = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    // Courses sharing at least one selective term with the document, excluding itself
+    private int[] candidates(int ordinal, Document document) {
+        int courseCount = IdDictionary.COURSES.size();
+        if (seenStamps.length < courseCount) {
+            seenStamps = Arrays.copyOf(seenStamps, Math.max(courseCount, seenStamps.length * 2));
+        }
+        if (++stamp == 0) {
+            Arrays.fill(seenStamps, 0);
+            stamp = 1;
+        }
+        int[] found = new int[16];
+        int count = 0;
+        for (int term : document.terms) {
+            int size = postingSizes[term];
+            if (size > MAX_CANDIDATE_POSTINGS) continue;
+            int[] posting = postings[term];
+            for (int i = 0; i < size; i++) {
+                int candidate = posting[i];
+                if (candidate == ordinal || seenStamps[candidate] == stamp) continue;
+                seenStamps[candidate] = stamp;
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private double idf(int term) {
+        return Math.log(1.0 + (double) documentCount / Math.max(1, postingSizes[term]));
+    }
+
+    private double weight(Document document, int i) {
+        return (1.0 + Math.log(document.frequencies[i])) * idf(document.terms[i]);
+    }
+
+    private double norm(Document document) {
+        double sum = 0.0;
+        for (int i = 0; i < document.terms.length; i++) {
+            double weight = weight(document, i);
+            sum += weight * weight;
+        }
+        return Math.sqrt(sum);
+    }
+
+    // Exact cosine over every shared term, merging the two ascending term arrays
+    private double cosine(Document a, Document b) {
+        double dot = 0.0;
+        int i = 0;
+        int j = 0;
+        while (i < a.terms.length && j < b.terms.length) {
+            if (a.terms[i] < b.terms[j]) {
+                i++;
+            } else if (a.terms[i] > b.terms[j]) {
+                j++;
+            } else {
+                dot += weight(a, i++) * weight(b, j++);
+            }
+        }
+        if (dot == 0.0) return 0.0;
+        return dot / (norm(a) * norm(b));
+    }
+
+    // Inserts the course into another course's list if it beats the weakest entry
+    private void offerNeighbor(Document document, int ordinal, double similarity) {
+        TopKSelector top = new TopKSelector(neighborCount);
+        int[] neighbors = document.neighbors;
+        float[] similarities = document.similarities;
+        if (neighbors.length == neighborCount && similarity <= similarities[neighbors.length - 1]) return;
+        for (int rank = 0; rank < neighbors.length; rank++) {
+            if (neighbors[rank] != ordinal) {
+                top.offer(similarities[rank], neighbors[rank]);
+            }
+        }
+        top.offer(similarity, ordinal);
+        publish(document, top);
+    }
+
+    private void publish(Document document, TopKSelector top) {
+        int[] neighbors = top.toSortedIndices();
+        float[] similarities = new float[neighbors.length];
+        double[] scores = top.toSortedScores();
+        for (int rank = 0; rank < neighbors.length; rank++) {
+            similarities[rank] = (float) scores[rank];
+        }
+        // Similarities first: a reader that sees the new neighbours also sees their scores
+        document.similarities = similarities;
+        document.neighbors = neighbors;
+        document.neighborsStale = false;
+    }
+
+    /**
+     * Ordinals of up to k courses most similar to the given one, most similar first.
+     * Served from the precomputed list unless it is stale or k exceeds its length.
+     */
+    public int[] similarCourses(int ordinal, int k) {
+        if (k <= 0) throw new IllegalArgumentException("k must be positive");
+        Document document = documents.get(ordinal);
+        if (document == null) return new int[0];
+        if (document.neighborsStale || k > neighborCount || isOutgrown(document)) {
+            return recompute(ordinal, document, k);
+        }
+        int[] neighbors = document.neighbors;
+        return neighbors.length <= k ? neighbors : Arrays.copyOf(neighbors, k);
+    }
+
+    private boolean isOutgrown(Document document) {
+        return documentCount * 4L > document.computedAtCount * 5L;
+    }
+
+    private synchronized int[] recompute(int ordinal, Document document, int k) {
+        // A replaced document is no longer indexed; answer from the one that replaced it
+        Document current = documents.get(ordinal);
+        if (current != document) {
+            return similarCourses(ordinal, k);
+        }
+        TopKSelector top = new TopKSelector(Math.max(k, neighborCount));
+        for (int candidate : candidates(ordinal, document)) {
+            double similarity = cosine(document, documents.get(candidate));
+            if (similarity > 0.0) {
+                top.offer(similarity, candidate);
+            }
+        }
+        // Only a list of the usual length is kept
+        if (k > neighborCount) {
+            return top.toSortedIndices();
+        }
+        publish(document, top);
+        document.computedAtCount = documentCount;
+        int[] neighbors = document.neighbors;
+        return neighbors.length <= k ? neighbors : Arrays.copyOf(neighbors, k);
+    }
+}
@@ -1,7 +1,12 @@
 import java.io.Serializable;
 import java.text.DecimalFormat;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
 
 enum CourseCategory {
     PROGRAMMING, BUSINESS, DATA_SCIENCE,
@@ -16,21 +21,50 @@ public class Course implements Serializable {
 
     // Core course attributes
     private final String courseID;
+    // Dense ordinal of courseID in IdDictionary.COURSES, the key engine-side structures use
+    private final int ordinal;
     private String title;
     private CourseCategory category;
     private CourseDifficulty difficulty;
     private String provider;
     private String description;
-    private Map<String, List<Integer>> userRatings = new HashMap<>();
-    private Map<String, List<String>> reviews = new HashMap<>();
-
-    // Rating and metadata attributes
-    private double averageRating;
-    private int totalRatings;
-    private int enrollmentCount;
+    // Every rating in arrival order, packed with the rater's ordinal and time; the string getters translate back to IDs
+    private final RatingLog ratingLog = new RatingLog();
+    // Each user's reviews in the order given, which the rating files pair with that user's ratings
+    private final Map<String, List<String>> reviews = new ConcurrentHashMap<>();
+    // The same lists wrapped read-only, so reviews reach the ranking only through addReview
+    private final Map<String, List<String>> readOnlyReviews = new ConcurrentHashMap<>();
+    private final ReviewRanking reviewRanking = new ReviewRanking();
+
+    // Serializes ratings on this course only, so each rating and its listener event land in order.
+    // Courses never share it, and enrollment uses the course monitor, so neither waits on the other
+    private final ReentrantLock ratingLock = new ReentrantLock();
+    // Rating count in the high 29 bits and star sum in the low 35, in one word so lock-free readers
+    // never pair a count with another moment's sum
+    private volatile long ratingTotals;
+    // ratingHistogram[stars - 1] counts the ratings of that many stars
+    private final AtomicIntegerArray ratingHistogram = new AtomicIntegerArray(5);
+
+    // Metadata attributes
+    private volatile int enrollmentCount;
     private LocalDateTime createdAt;
-    private LocalDateTime lastUpdated;
-    private int ratingCount = 0;
+    // Creation day as a primitive, so recency scoring never touches LocalDateTime
+    private final long createdEpochDay;
+    private volatile LocalDateTime lastUpdated;
+
+    // Observers (e.g. engine-side catalog statistics) kept in sync with this course
+    private transient List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    private static final int RATING_SUM_BITS = 35;
+    private static final long RATING_SUM_MASK = (1L << RATING_SUM_BITS) - 1;
+    private static final int MAX_RATING_COUNT = (1 << (64 - RATING_SUM_BITS)) - 1;
+
+    // Events for one course arrive one at a time and in order; listeners must not call back into its mutators
+    public interface ChangeListener {
+        void onEnrollmentChanged(Course course, int previousCount);
+        // userOrdinal is the rater's ordinal in IdDictionary.USERS
+        void onRatingAdded(Course course, int userOrdinal, int rating, double previousAverage, int previousCount);
+    }
 
 
     // Constructor
@@ -39,6 +73,7 @@ public class Course implements Serializable {
         validateInputs(courseID, title, category, difficulty, provider, description);
 
         this.courseID = courseID;
+        this.ordinal = IdDictionary.COURSES.intern(courseID);
         this.title = title;
         this.category = category;
         this.difficulty = difficulty;
@@ -46,13 +81,10 @@ public class Course implements Serializable {
         this.description = description;
 
         // Initialize metadata
-        this.averageRating = 0.0;
-        this.totalRatings = 0;
         this.enrollmentCount = 0;
         this.createdAt = LocalDateTime.now();
+        this.createdEpochDay = createdAt.toLocalDate().toEpochDay();
         this.lastUpdated = LocalDateTime.now();
-        this.userRatings = new HashMap<>();
-        this.reviews = new HashMap<>();
 
     }
 
@@ -89,44 +121,45 @@ public class Course implements Serializable {
             throw new IllegalArgumentException("User ID cannot be empty");
         }
 
-        // Store the user's rating
-        if (!userRatings.containsKey(userId)) {
-            userRatings.put(userId, new ArrayList<>());
-        }
-        userRatings.get(userId).add((int) rating);
-
-        // Recalculate average rating
-        calculateAverageRating();
-
-        // Update last updated timestamp
-        lastUpdated = LocalDateTime.now();
+        recordRating(IdDictionary.USERS.intern(userId), (int) rating, Instant.now().getEpochSecond());
     }
 
-    // Calculate average rating from all user ratings
-    private void calculateAverageRating() {
-        if (userRatings.isEmpty()) {
-            averageRating = 0.0;
-            totalRatings = 0;
-            return;
-        }
-
-        double sum = 0;
-        int count = 0;
-        
-        for (List<Integer> ratings : userRatings.values()) {
-            for (Integer rating : ratings) {
-                sum += rating;
-                count++;
+    // Stores one rating and folds it into the running aggregate; rating must already be 1-5
+    private void recordRating(int userOrdinal, int rating, long epochSeconds) {
+        ratingLock.lock();
+        try {
+            long totals = ratingTotals;
+            int previousCount = countOf(totals);
+            if (previousCount == MAX_RATING_COUNT) {
+                throw new IllegalStateException("Course " + courseID + " cannot take more ratings");
             }
+            double previousAverage = averageOf(totals);
+
+            // Appended, never overwriting the user's earlier ratings
+            ratingLog.append(userOrdinal, rating, epochSeconds);
+            ratingHistogram.incrementAndGet(rating - 1);
+            ratingTotals = ((long) (previousCount + 1) << RATING_SUM_BITS) | ((totals & RATING_SUM_MASK) + rating);
+
+            lastUpdated = LocalDateTime.now();
+            // Fired under the lock: listeners update incrementally from previousAverage, so order matters
+            fireRatingAdded(userOrdinal, rating, previousAverage, previousCount);
+        } finally {
+            ratingLock.unlock();
         }
+    }
 
-        totalRatings = count;
-        averageRating = sum / totalRatings;
+    private static int countOf(long totals) {
+        return (int) (totals >>> RATING_SUM_BITS);
+    }
+
+    private static double averageOf(long totals) {
+        int count = countOf(totals);
+        return count == 0 ? 0.0 : (double) (totals & RATING_SUM_MASK) / count;
     }
 
     // Check if a user has already rated this course
     public boolean hasUserRated(String userId) {
-        return userRatings.containsKey(userId) && !userRatings.get(userId).isEmpty();
+        return ratingLog.latestStars(IdDictionary.USERS.lookup(userId)) > 0;
     }
 
     // Check course suitability for a user's skill level
@@ -135,9 +168,54 @@ public class Course implements Serializable {
     }
 
     // Enrollment method
-    public void incrementEnrollment() {
+    // Synchronized, as are the listener events it fires, so concurrent enrollments are neither lost nor reordered
+    public synchronized void incrementEnrollment() {
         enrollmentCount++;
         lastUpdated = LocalDateTime.now();
+        fireEnrollmentChanged(enrollmentCount - 1);
+    }
+
+    // Runs the action with ratings and enrollment changes held off, so a listener can
+    // read the course's totals and attach or detach without an event slipping in between
+    public void withChangesHeld(Runnable action) {
+        synchronized (this) {
+            ratingLock.lock();
+            try {
+                action.run();
+            } finally {
+                ratingLock.unlock();
+            }
+        }
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        if (listener == null) throw new IllegalArgumentException("Listener cannot be null");
+        if (changeListeners == null) {
+            changeListeners = new CopyOnWriteArrayList<>();
+        }
+        if (!changeListeners.contains(listener)) {
+            changeListeners.add(listener);
+        }
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        if (changeListeners != null) {
+            changeListeners.remove(listener);
+        }
+    }
+
+    private void fireEnrollmentChanged(int previousCount) {
+        if (changeListeners == null) return;
+        for (ChangeListener listener : changeListeners) {
+            listener.onEnrollmentChanged(this, previousCount);
+        }
+    }
+
+    private void fireRatingAdded(int userOrdinal, int rating, double previousAverage, int previousCount) {
+        if (changeListeners == null) return;
+        for (ChangeListener listener : changeListeners) {
+            listener.onRatingAdded(this, userOrdinal, rating, previousAverage, previousCount);
+        }
     }
 
     // Comprehensive course information retrieval
@@ -149,8 +227,8 @@ public class Course implements Serializable {
         details.put("difficulty", difficulty);
         details.put("provider", provider);
         details.put("description", description);
-        details.put("averageRating", averageRating);
-        details.put("totalRatings", totalRatings);
+        details.put("averageRating", getAverageRating());
+        details.put("totalRatings", getRatingCount());
         details.put("enrollmentCount", enrollmentCount);
         details.put("createdAt", createdAt);
         details.put("lastUpdated", lastUpdated);
@@ -160,37 +238,126 @@ public class Course implements Serializable {
 
     // Getters
     public String getCourseID() { return courseID; }
+    public int getOrdinal() { return ordinal; }
     public String getTitle() { return title; }
     public CourseCategory getCategory() { return category; }
     public CourseDifficulty getDifficulty() { return difficulty; }
     public String getProvider() { return provider; }
     public String getDescription() { return description; }
-    public double getAverageRating() { return averageRating; }
+    public double getAverageRating() { return averageOf(ratingTotals); }
     public int getEnrollmentCount() { return enrollmentCount; }
-    public Map<String, List<Integer>> getUserRatings() { return new HashMap<>(userRatings); }
     public LocalDateTime getCreatedAt() { return createdAt; }
+    public long getCreatedEpochDay() { return createdEpochDay; }
     public LocalDateTime getLastUpdated() { return lastUpdated; }
     public int getRatingCount() {
-        return ratingCount;
+        return countOf(ratingTotals);
     }
-    public int getUserRating(String userId) {
-        if (userRatings.containsKey(userId) && !userRatings.get(userId).isEmpty()) {
-            // Return the most recent rating
-            List<Integer> ratings = userRatings.get(userId);
-            return ratings.get(ratings.size() - 1);
+
+    public long getRatingSum() {
+        return ratingTotals & RATING_SUM_MASK;
+    }
+
+    // Ratings per star value: index 0 counts 1-star ratings, index 4 counts 5-star ratings
+    public int[] getRatingHistogram() {
+        int[] bins = new int[5];
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] = ratingHistogram.get(i);
+        }
+        return bins;
+    }
+
+    // The distribution statistics below each read one histogram copy, so they agree with themselves
+    // even while ratings arrive
+
+    // Median star value, the mean of the two middle ratings when the count is even; 0 when unrated
+    public double getMedianRating() {
+        int[] bins = getRatingHistogram();
+        int count = countOf(bins);
+        if (count == 0) return 0.0;
+        return (ratingAtRank(bins, (count - 1) / 2) + ratingAtRank(bins, count / 2)) / 2.0;
+    }
+
+    // Nearest-rank percentile (0-100) of the ratings, as a star value; 0 when unrated
+    public int getRatingPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        int[] bins = getRatingHistogram();
+        int count = countOf(bins);
+        if (count == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+        return ratingAtRank(bins, Math.max(rank, 0));
+    }
+
+    // Population standard deviation of the ratings; 0 when unrated
+    public double getRatingStandardDeviation() {
+        int[] bins = getRatingHistogram();
+        int count = countOf(bins);
+        if (count == 0) return 0.0;
+        double sum = 0;
+        for (int stars = 1; stars <= 5; stars++) {
+            sum += (double) stars * bins[stars - 1];
+        }
+        double mean = sum / count;
+        double squares = 0;
+        for (int stars = 1; stars <= 5; stars++) {
+            squares += bins[stars - 1] * (stars - mean) * (stars - mean);
+        }
+        return Math.sqrt(squares / count);
+    }
+
+    // Average shrunk toward priorMean as if priorWeight extra ratings of priorMean had been given
+    public double getBayesianRating(double priorMean, int priorWeight) {
+        long totals = ratingTotals;
+        return (priorMean * priorWeight + (totals & RATING_SUM_MASK)) / (priorWeight + countOf(totals));
+    }
+
+    private static int countOf(int[] bins) {
+        int count = 0;
+        for (int bin : bins) {
+            count += bin;
+        }
+        return count;
+    }
+
+    // Star value of the rating at the given 0-based rank in ascending order
+    private static int ratingAtRank(int[] bins, int rank) {
+        int seen = 0;
+        for (int stars = 1; stars <= 5; stars++) {
+            seen += bins[stars - 1];
+            if (rank < seen) return stars;
         }
-        return 0;
+        return 5;
     }
-    public Map<String, List<Integer>> getAllRatings() {
-        return new HashMap<>(userRatings); // Return a copy to prevent direct modification
+    // The user's most recent rating, or 0 if they have not rated
+    public int getUserRating(String userId) {
+        return ratingLog.latestStars(IdDictionary.USERS.lookup(userId));
+    }
+
+    // Read-only view of every rating so far, oldest first; shares storage with the course instead of copying
+    public RatingLog.View getRatingLog() {
+        return ratingLog.view();
     }
+
+    // Each rater's most recent rating, keyed by user ordinal, for engine-side indexes
+    public Map<Integer, Integer> getLatestRatingsByUserOrdinal() {
+        RatingLog.View ratings = ratingLog.view();
+        Map<Integer, Integer> latest = new HashMap<>();
+        // Later entries overwrite earlier ones, leaving each rater's latest
+        for (int i = 0; i < ratings.size(); i++) {
+            latest.put(ratings.userOrdinal(i), ratings.stars(i));
+        }
+        return latest;
+    }
+
     public String getRatingString() {
-        if (ratingCount == 0) {
+        long totals = ratingTotals;
+        if (countOf(totals) == 0) {
             return "No ratings yet";
         }
 
         DecimalFormat df = new DecimalFormat("#.#");
-        return df.format(averageRating) + "/5 (" + ratingCount + " ratings)";
+        return df.format(averageOf(totals)) + "/5 (" + countOf(totals) + " ratings)";
     }
 
     // Equals and HashCode
@@ -207,41 +374,26 @@ public class Course implements Serializable {
         return Objects.hash(courseID);
     }
 
-    public void decrementEnrollment() {
+    public synchronized void decrementEnrollment() {
         if (enrollmentCount > 0) {
             enrollmentCount--;
             System.out.println("Enrollment count for course " + courseID + " has been decreased to " + enrollmentCount);
+            fireEnrollmentChanged(enrollmentCount + 1);
         }
         lastUpdated = LocalDateTime.now();
     }
 
     public boolean addRating(String userId, int rating) {
+        return addRating(userId, rating, Instant.now().getEpochSecond());
+    }
+
+    // For ratings replayed from a file, keeping the time they were originally given
+    public boolean addRating(String userId, int rating, long epochSeconds) {
         if (rating < 1 || rating > 5) {
             return false;
         }
-        
-        // Initialize the list if it doesn't exist
-        if (!userRatings.containsKey(userId)) {
-            userRatings.put(userId, new ArrayList<>());
-        }
-        
-        // Add the new rating to the list (don't overwrite)
-        userRatings.get(userId).add(rating);
-        
-        // Update the average rating
-        int sum = 0;
-        int count = 0;
-        
-        for (List<Integer> ratings : userRatings.values()) {
-            for (Integer r : ratings) {
-                sum += r;
-                count++;
-            }
-        }
-        
-        ratingCount = count;
-        averageRating = count > 0 ? (double) sum / count : 0;
 
+        recordRating(IdDictionary.USERS.intern(userId), rating, epochSeconds);
         return true;
     }
 
@@ -256,39 +408,39 @@ public class Course implements Serializable {
             return false;
         }
 
-        if (!reviews.containsKey(userID)) {
-            reviews.put(userID, new ArrayList<>());
-        }
-        reviews.get(userID).add(review);
+        // Copy-on-write: a user's reviews are few, and readers iterate them without locking
+        reviews.computeIfAbsent(userID, key -> {
+            List<String> userReviews = new CopyOnWriteArrayList<>();
+            readOnlyReviews.put(key, Collections.unmodifiableList(userReviews));
+            return userReviews;
+        }).add(review);
+        reviewRanking.add(userID, review);
         return true;
     }
     // Sort the reviews based on their ratings or popularity
+    // The i best reviews by quality, best first, read from the maintained ranking without sorting
     public List<String> getTopReviews(int i) {
-        List<String> allReviews = new ArrayList<>();
-        for (List<String> userReviews : reviews.values()) {
-            allReviews.addAll(userReviews);
-        }
-        // Sort the reviews based on their ratings or popularity
-        //implement a custom sorting algorithm or use a built-in sorting method
-        Collections.sort(allReviews, (review1, review2) -> {
-            // Replace the following logic with your own sorting criteria
-            return Integer.compare(getReviewRating(review2), getReviewRating(review1));
-        });
-
-        // Return the top reviews
-        return allReviews.subList(0, Math.min(i, allReviews.size()));
+        if (i <= 0) return Collections.emptyList();
+        List<ReviewRanking.Review> top = reviewRanking.top(i);
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) { return top.get(index).getText(); }
+            @Override
+            public int size() { return top.size(); }
+        };
     }
 
-    private int getReviewRating(String review) {
-        // Replace the following logic with your own rating calculation
-        // For example, you can assign a rating based on the length of the review
-        return review.length();
+    // One page of every review, best first; see ReviewRanking for how reviews are ranked
+    public List<ReviewRanking.Review> getReviewPage(int offset, int limit) {
+        return reviewRanking.page(offset, limit);
     }
-    public Map<String, List<Integer>> getRatings() {
-        return userRatings;
+
+    public int getReviewCount() {
+        return reviewRanking.size();
     }
+
     public Map<String, List<String>> getReviews() {
-        return reviews;
+        return Collections.unmodifiableMap(readOnlyReviews);
     }
     ///  ////////////////////////////////// ML
     public double getDurationHours() {
@@ -15,6 +15,12 @@ public class CourseManagerService {
     private static final String EMAIL_REGEX = "^[A-Za-z0-9+_.-]+@(.+)$";
     private static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_REGEX);
     private static final int MIN_PASSWORD_LENGTH = 8;
+    private static final int SEARCH_RESULTS_SHOWN = 20;
+    private static final int DID_YOU_MEAN_SHOWN = 3;
+    private static final int TOP_RATED_SHOWN = 10;
+    private static final int REVIEWS_PER_PAGE = 5;
+    // Courses whose rating file has been read; reading it again would add every rating twice
+    private final Set<String> ratingsLoaded = new HashSet<>();
 
     public CourseManagerService(RecommendationEngine engine, Scanner scanner) {
         this.engine = engine;
@@ -103,6 +109,32 @@ public class CourseManagerService {
         }
     }
 
+    // Reads every course's saved ratings once, so the rating indexes are current from startup
+    public void loadAllCourseRatings() {
+        for (Course course : engine.getAllCourses()) {
+            loadCourseRatings(course);
+        }
+    }
+
+    // Seeds "learners also took" from every saved user profile
+    public void buildCoEnrollmentGraph() {
+        try (DirectoryStream<Path> userFiles = Files.newDirectoryStream(Paths.get("."), "user_*.txt")) {
+            List<String> userIds = new ArrayList<>();
+            for (Path userFile : userFiles) {
+                String fileName = userFile.getFileName().toString();
+                userIds.add(fileName.substring("user_".length(), fileName.length() - ".txt".length()));
+            }
+            List<User> users = userIds.parallelStream()
+                    .map(User::loadFromFile)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            engine.buildCoEnrollmentGraph(users);
+            System.out.println("Co-enrollment graph built from " + users.size() + " learners");
+        } catch (IOException e) {
+            System.out.println("Warning: Could not read saved users for co-enrollment: " + e.getMessage());
+        }
+    }
+
     public void registerUser() {
         try {
             System.out.println("\n📝 USER REGISTRATION 📝");
@@ -330,6 +362,20 @@ public class CourseManagerService {
                 System.out.println("----------------------------------------------------");
             }
             System.out.println("💡 Tip: Use the course ID to enroll in a course.");
+
+            String choice = getStringInput("Enter a course number to stop recommending it, or press Enter to continue: ");
+            if (!choice.isEmpty()) {
+                int selection = Integer.parseInt(choice);
+                if (selection < 1 || selection > recommendations.size()) {
+                    throw new IllegalArgumentException("Invalid course number.");
+                }
+                Course dismissed = recommendations.get(selection - 1);
+                if (currentUser.dismissCourse(dismissed.getCourseID())) {
+                    System.out.println("✅ " + dismissed.getTitle() + " will no longer be recommended.");
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("❌ Error: Please enter a valid course number.");
         } catch (IllegalArgumentException e) {
             System.out.println("❌ Error: " + e.getMessage());
         } catch (Exception e) {
@@ -525,8 +571,12 @@ public class CourseManagerService {
             // Get the course
             Course course = engine.getCourseById(courseId);
             if (course == null) {
-                throw new IllegalArgumentException("Course not found with ID: " + courseId +
-                        ". Please check the course ID and try again.");
+                course = chooseSuggestedCourse(courseId);
+                if (course == null) {
+                    throw new IllegalArgumentException("Course not found with ID: " + courseId +
+                            ". Please check the course ID and try again.");
+                }
+                courseId = course.getCourseID();
             }
 
             // Check if already enrolled
@@ -580,30 +630,33 @@ public class CourseManagerService {
         try {
             System.out.println("\n📋 AVAILABLE COURSES 📋");
 
-            List<Course> allCourses = engine.getAllCourses();
-            if (allCourses.isEmpty()) {
+            if (engine.getCatalogSnapshot().size() == 0) {
                 System.out.println("No courses available in the system.");
                 return null;
             }
 
-            // Sort courses by category
-            Map<CourseCategory, List<Course>> coursesByCategory = new HashMap<>();
-            for (Course course : allCourses) {
-                CourseCategory category = course.getCategory();
-                if (!coursesByCategory.containsKey(category)) {
-                    coursesByCategory.put(category, new ArrayList<>());
-                }
-                coursesByCategory.get(category).add(course);
+            String query = getStringInput("Search by keyword (end a word with * to match its start, e.g. pyth*), "
+                    + "or press Enter to list all: ");
+            if (!query.isEmpty()) {
+                return selectFromSearchResults(currentUser, query);
+            }
+
+            CatalogQuery filter = chooseCatalogFilter();
+            CatalogQueryIndex.Facets facets = engine.getFacets(filter);
+            if (facets.total() == 0) {
+                System.out.println("No courses match those filters.");
+                return null;
             }
 
             // Display courses by category
             Map<Integer, Course> courseMap = new HashMap<>();
             int index = 1;
 
-            for (Map.Entry<CourseCategory, List<Course>> entry : coursesByCategory.entrySet()) {
-                System.out.println("\n=== " + entry.getKey() + " ===");
+            for (CourseCategory category : CourseCategory.values()) {
+                if (facets.categories().get(category) == 0) continue;
+                System.out.println("\n=== " + category + " (" + facets.categories().get(category) + ") ===");
 
-                for (Course course : entry.getValue()) {
+                for (Course course : engine.queryCourses(filter.withCategories(category))) {
                     // Check enrollment status
                     boolean enrolled = currentUser.getEnrolledCourseIds().contains(course.getCourseID());
                     boolean completed = currentUser.getCompletedCourses().contains(course.getCourseID());
@@ -641,6 +694,82 @@ public class CourseManagerService {
         }
     }
 
+    // Optional difficulty and minimum rating filters, each option shown with how many courses it leaves
+    private CatalogQuery chooseCatalogFilter() {
+        CatalogQuery filter = CatalogQuery.all();
+        CatalogQueryIndex.Facets facets = engine.getFacets(filter);
+        CourseDifficulty[] difficulties = CourseDifficulty.values();
+        System.out.println("Filter by difficulty:");
+        for (int i = 0; i < difficulties.length; i++) {
+            System.out.println((i + 1) + ". " + difficulties[i] + " (" + facets.difficulties().get(difficulties[i]) + ")");
+        }
+        String choice = getStringInput("Enter a number, or press Enter for any difficulty: ");
+        if (choice.matches("[1-9]") && Integer.parseInt(choice) <= difficulties.length) {
+            filter = filter.withDifficulties(difficulties[Integer.parseInt(choice) - 1]);
+        }
+
+        facets = engine.getFacets(filter);
+        System.out.println("Filter by rating:");
+        for (int stars = 5; stars >= 1; stars--) {
+            System.out.println(stars + ". " + stars + "+ stars (" + facets.atLeastStars(stars) + ")");
+        }
+        choice = getStringInput("Enter the minimum stars, or press Enter for any rating: ");
+        if (choice.matches("[1-5]")) {
+            filter = filter.withMinAverageRating(Integer.parseInt(choice));
+        }
+        return filter;
+    }
+
+    // Offers the closest IDs/titles to a mistyped course ID; null if none fit or the user declines
+    private Course chooseSuggestedCourse(String typed) {
+        List<Course> suggestions = engine.suggestCourses(typed, DID_YOU_MEAN_SHOWN);
+        if (suggestions.isEmpty()) {
+            return null;
+        }
+        System.out.println("No course has the ID \"" + typed + "\". Did you mean:");
+        for (int i = 0; i < suggestions.size(); i++) {
+            Course suggestion = suggestions.get(i);
+            System.out.println((i + 1) + ". " + suggestion.getCourseID() + " - " + suggestion.getTitle());
+        }
+        int selection = CourseRecommendationCLI.getIntInput("Select a course, or 0 for none of these: ");
+        if (selection < 1 || selection > suggestions.size()) {
+            return null;
+        }
+        return suggestions.get(selection - 1);
+    }
+
+    private String selectFromSearchResults(User currentUser, String query) {
+        List<Course> results = engine.searchCourses(query, SEARCH_RESULTS_SHOWN);
+        if (results.isEmpty()) {
+            System.out.println("No courses match \"" + query + "\".");
+            return null;
+        }
+
+        System.out.println("\n=== SEARCH RESULTS ===");
+        for (int i = 0; i < results.size(); i++) {
+            Course course = results.get(i);
+            boolean enrolled = currentUser.getEnrolledCourseIds().contains(course.getCourseID());
+            boolean completed = currentUser.getCompletedCourses().contains(course.getCourseID());
+            String status = completed ? " [✅ COMPLETED]" :
+                    enrolled ? " [📚 ENROLLED]" : "";
+            System.out.println((i + 1) + ". " + course.getTitle() + status +
+                    " (ID: " + course.getCourseID() + ")" +
+                    " - " + course.getCategory() + ", " + course.getProvider());
+        }
+
+        System.out.println("\nEnter the number of the course you want to enroll in, or 0 to cancel:");
+        int selection = CourseRecommendationCLI.getIntInput("Your selection: ");
+        if (selection == 0) {
+            System.out.println("Selection canceled.");
+            return null;
+        }
+        if (selection < 1 || selection > results.size()) {
+            System.out.println("Invalid selection.");
+            return null;
+        }
+        return results.get(selection - 1).getCourseID();
+    }
+
     public void completeCourse(User currentUser) {
         try {
             if (currentUser == null) {
@@ -1114,28 +1243,13 @@ public class CourseManagerService {
         try {
             System.out.println("\n🏆 TOP RATED COURSES 🏆");
 
-            List<Course> allCourses = engine.getAllCourses();
-
-            // Load ratings for all courses first
-            for (Course course : allCourses) {
-                loadCourseRatings(course);
-            }
-
-            // Filter to courses with at least one rating
-            List<Course> ratedCourses = allCourses.stream()
-                    .filter(c -> c.getRatingCount() > 0)
-                    .collect(Collectors.toList());
-
+            List<Course> ratedCourses = engine.topRatedCourses(TOP_RATED_SHOWN);
             if (ratedCourses.isEmpty()) {
                 System.out.println("No courses have been rated yet.");
                 return;
             }
 
-            // Sort by average rating (highest first)
-            ratedCourses.sort(Comparator.comparing(Course::getAverageRating).reversed());
-
-            // Display top 10 courses
-            int limit = Math.min(10, ratedCourses.size());
+            int limit = ratedCourses.size();
             System.out.println("Showing top " + limit + " rated courses:");
             System.out.println("----------------------------------------------------");
 
@@ -1159,12 +1273,42 @@ public class CourseManagerService {
                 System.out.println("----------------------------------------------------");
             }
 
+            int selection = CourseRecommendationCLI.getIntInput(
+                    "Enter a course number to read all its reviews, or 0 to go back: ");
+            if (selection >= 1 && selection <= limit) {
+                pageThroughReviews(ratedCourses.get(selection - 1));
+            }
+
         } catch (Exception e) {
             System.out.println("❌ An unexpected error occurred: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    // Shows a course's reviews best first, one page at a time
+    private void pageThroughReviews(Course course) {
+        int total = course.getReviewCount();
+        if (total == 0) {
+            System.out.println("No reviews for " + course.getTitle() + " yet.");
+            return;
+        }
+        System.out.println("\nReviews of " + course.getTitle() + " (" + total + "), most informative first:");
+        for (int offset = 0; offset < total; offset += REVIEWS_PER_PAGE) {
+            List<ReviewRanking.Review> page = course.getReviewPage(offset, REVIEWS_PER_PAGE);
+            for (int i = 0; i < page.size(); i++) {
+                ReviewRanking.Review review = page.get(i);
+                System.out.println((offset + i + 1) + ". " + review.getText() + " (" + review.getAuthor() + ")");
+            }
+            if (offset + REVIEWS_PER_PAGE >= total) {
+                break;
+            }
+            String more = getStringInput("Show more reviews? (yes/no): ");
+            if (!more.toLowerCase().startsWith("y")) {
+                break;
+            }
+        }
+    }
+
     // Method to save ratings directly to user file in the specified format
     public void saveRatingToUserFile(User user, String courseId, String courseName, int rating, String review) {
         try {
@@ -1292,23 +1436,12 @@ public class CourseManagerService {
                 directory.mkdirs();
             }
 
-            // Get all current ratings from the course
-            Map<String, List<Integer>> courseRatings = course.getAllRatings();
+            // Read in place rather than copied; ratings arriving while the file is written are left for the next save
+            RatingLog.View courseRatings = course.getRatingLog();
             Map<String, List<String>> courseReviews = course.getReviews();
             
-            // Calculate total and average ratings
-            int totalRatings = 0;
-            int ratingSum = 0;
-            
-            for (Map.Entry<String, List<Integer>> entry : courseRatings.entrySet()) {
-                List<Integer> ratings = entry.getValue();
-                totalRatings += ratings.size();
-                for (Integer rating : ratings) {
-                    ratingSum += rating;
-                }
-            }
-            
-            double averageRating = totalRatings > 0 ? (double) ratingSum / totalRatings : 0.0;
+            int totalRatings = course.getRatingCount();
+            double averageRating = course.getAverageRating();
             
             // Write ratings to file in structured format
             PrintWriter writer = new PrintWriter(new FileWriter(fileName));
@@ -1319,20 +1452,20 @@ public class CourseManagerService {
             writer.println();
             
             writer.println("USER_RATINGS:");
-            for (Map.Entry<String, List<Integer>> entry : courseRatings.entrySet()) {
-                String userId = entry.getKey();
-                List<Integer> ratings = entry.getValue();
-                
-                for (int i = 0; i < ratings.size(); i++) {
-                    writer.println("  USER_ID: " + userId);
-                    writer.println("  RATING: " + ratings.get(i));
-                    
-                    // Add review if exists
-                    if (courseReviews.containsKey(userId) && courseReviews.get(userId).size() > i) {
-                        writer.println("  REVIEW: " + courseReviews.get(userId).get(i));
-                    }
-                    writer.println();
+            // A user's n-th rating is paired with their n-th review, as when they were given
+            Map<String, Integer> ratingsSeen = new HashMap<>();
+            for (int i = 0; i < courseRatings.size(); i++) {
+                String userId = IdDictionary.USERS.idOf(courseRatings.userOrdinal(i));
+                int nth = ratingsSeen.merge(userId, 1, Integer::sum) - 1;
+                writer.println("  USER_ID: " + userId);
+                writer.println("  RATING: " + courseRatings.stars(i));
+                writer.println("  RATED_AT: " + courseRatings.epochSeconds(i));
+
+                // Add review if exists
+                if (courseReviews.containsKey(userId) && courseReviews.get(userId).size() > nth) {
+                    writer.println("  REVIEW: " + courseReviews.get(userId).get(nth));
                 }
+                writer.println();
             }
             
             writer.close();
@@ -1345,6 +1478,9 @@ public class CourseManagerService {
 
     // Method to load course ratings from file
     public void loadCourseRatings(Course course) {
+        if (!ratingsLoaded.add(course.getCourseID())) {
+            return;
+        }
         try {
             String filename = course.getCourseID() + "_ratings.txt";
             Path ratingFile = Paths.get(DATA_DIRECTORY, "ratings", filename);
@@ -1358,6 +1494,7 @@ public class CourseManagerService {
             boolean inUserRatings = false;
             String currentUserId = null;
             Integer currentRating = null;
+            Long currentRatedAt = null;
             String currentReview = null;
             
             for (String line : lines) {
@@ -1379,30 +1516,28 @@ public class CourseManagerService {
                     if (line.startsWith("USER_ID:")) {
                         // If we have a complete rating, add it before starting a new one
                         if (currentUserId != null && currentRating != null) {
-                            course.addRating(currentUserId, currentRating);
-                            if (currentReview != null) {
-                                course.addReview(currentUserId, currentReview);
-                            }
+                            addLoadedRating(course, currentUserId, currentRating, currentRatedAt, currentReview);
                         }
                         
                         // Start a new rating
                         currentUserId = line.substring(line.indexOf(':') + 1).trim();
                         currentRating = null;
+                        currentRatedAt = null;
                         currentReview = null;
                     } else if (line.startsWith("RATING:") && currentUserId != null) {
                         currentRating = Integer.parseInt(line.substring(line.indexOf(':') + 1).trim());
+                    } else if (line.startsWith("RATED_AT:") && currentUserId != null) {
+                        currentRatedAt = Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
                     } else if (line.startsWith("REVIEW:") && currentUserId != null) {
                         currentReview = line.substring(line.indexOf(':') + 1).trim();
                     } else if (line.isEmpty() && currentUserId != null && currentRating != null) {
                         // Empty line after a rating entry - add the rating
-                        course.addRating(currentUserId, currentRating);
-                        if (currentReview != null) {
-                            course.addReview(currentUserId, currentReview);
-                        }
+                        addLoadedRating(course, currentUserId, currentRating, currentRatedAt, currentReview);
                         
                         // Reset for next entry
                         currentUserId = null;
                         currentRating = null;
+                        currentRatedAt = null;
                         currentReview = null;
                     }
                 }
@@ -1410,10 +1545,7 @@ public class CourseManagerService {
             
             // Add the last rating if there is one pending
             if (currentUserId != null && currentRating != null) {
-                course.addRating(currentUserId, currentRating);
-                if (currentReview != null) {
-                    course.addReview(currentUserId, currentReview);
-                }
+                addLoadedRating(course, currentUserId, currentRating, currentRatedAt, currentReview);
             }
 
             System.out.println("Loaded ratings for course: " + course.getTitle());
@@ -1423,6 +1555,18 @@ public class CourseManagerService {
         }
     }
 
+    // Files saved before ratings were timestamped have no RATED_AT line; those ratings count as given now
+    private void addLoadedRating(Course course, String userId, int rating, Long ratedAt, String review) {
+        if (ratedAt != null) {
+            course.addRating(userId, rating, ratedAt);
+        } else {
+            course.addRating(userId, rating);
+        }
+        if (review != null) {
+            course.addReview(userId, review);
+        }
+    }
+
     // Helper method for CLI input
     private String getStringInput(String prompt) {
         System.out.print(prompt);
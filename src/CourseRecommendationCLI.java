@@ -15,6 +15,8 @@ public class CourseRecommendationCLI {
             System.out.println("Current User: Sharawey74");
             System.out.println("Current Date: " + LocalDate.now().toString());
             service.initializeSampleCourses();
+            service.loadAllCourseRatings();
+            service.buildCoEnrollmentGraph();
 
             boolean running = true;
             while (running) {
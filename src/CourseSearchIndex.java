@@ -0,0 +1,392 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Full-text search over course title, description, provider, category and ID,
+ * ranked with BM25. Each term's posting list is a byte array of (document gap,
+ * term frequency) pairs in variable-length encoding, appended to as courses are
+ * indexed. Terms live in a sorted map, so a query term ending in '*' expands to
+ * the indexed terms with that prefix, at most MAX_PREFIX_TERMS of them.
+ *
+ * Documents get increasing internal IDs, which keeps posting lists sorted and
+ * their gaps small. Re-indexing a course gives it a new document and leaves the
+ * old one dead in the postings until enough dead documents pile up to compact.
+ * Compaction renumbers the live documents densely, in their old order, so the
+ * per-document arrays stay proportional to the live catalog under any churn.
+ *
+ * Writers are serialized on this index; queries never lock. The terms and the
+ * per-document arrays form one segment that a query reads once; compaction
+ * publishes a new segment rather than renumbering the one queries may hold.
+ * Within a segment every per-document array write happens before the volatile
+ * document count is bumped, and a query reads that count first.
+ */
+public class CourseSearchIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Title words say more about a course than the other fields
+    private static final int TITLE_TERM_WEIGHT = 2;
+    // A short prefix like "a*" could expand to a large part of the vocabulary, so a prefix
+    // matches only its first MAX_PREFIX_TERMS terms in alphabetical order
+    static final int MAX_PREFIX_TERMS = 64;
+    private static final int MIN_DEAD_DOCUMENTS_BEFORE_COMPACTION = 1024;
+    private static final int CONTRIBUTION_FREQUENCIES = 8;
+    private static final int CONTRIBUTION_LENGTHS = 64;
+
+    /**
+     * Append-only posting list with a single writer. Bytes are written before the
+     * volatile size is bumped and the array is republished before use, so a reader
+     * that reads size first can decode everything below it.
+     */
+    private static final class Postings {
+        private volatile byte[] bytes = new byte[8];
+        private volatile int size;
+        // Number of documents in the list, dead ones included until compaction
+        private volatile int documentFrequency;
+        private int lastDocument = -1;
+
+        private void append(int document, int frequency) {
+            int n = size;
+            if (n + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(n + 10, bytes.length * 2));
+            }
+            byte[] target = bytes;
+            n = writeVarInt(target, n, document - lastDocument);
+            n = writeVarInt(target, n, frequency);
+            lastDocument = document;
+            documentFrequency++;
+            size = n;
+        }
+    }
+
+    /**
+     * Open-addressing map from document ID to its accumulated score, for queries that
+     * touch few documents. Sized from the matched posting count, so a narrow query on
+     * a large catalog never allocates a score per document.
+     */
+    private static final class ScoreTable {
+        private static final int EMPTY = -1;
+        private int[] documents;
+        private float[] scores;
+        private int size;
+
+        private ScoreTable(long expected) {
+            int capacity = Integer.highestOneBit((int) Math.max(8, Math.min(expected, 1 << 28))) << 2;
+            documents = newDocuments(capacity);
+            scores = new float[capacity];
+        }
+
+        private static int[] newDocuments(int capacity) {
+            int[] documents = new int[capacity];
+            Arrays.fill(documents, EMPTY);
+            return documents;
+        }
+
+        private static int slotFor(int[] table, int document) {
+            int mask = table.length - 1;
+            int slot = (document * 0x9E3779B9) & mask;
+            while (table[slot] != EMPTY && table[slot] != document) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void add(int document, float contribution) {
+            int slot = slotFor(documents, document);
+            if (documents[slot] == EMPTY) {
+                // Kept at most half full so probe runs stay short
+                if ((size + 1) * 2 > documents.length) {
+                    grow();
+                    slot = slotFor(documents, document);
+                }
+                documents[slot] = document;
+                size++;
+            }
+            scores[slot] += contribution;
+        }
+
+        private void grow() {
+            int[] oldDocuments = documents;
+            float[] oldScores = scores;
+            documents = newDocuments(oldDocuments.length * 2);
+            scores = new float[documents.length];
+            for (int i = 0; i < oldDocuments.length; i++) {
+                if (oldDocuments[i] == EMPTY) continue;
+                int slot = slotFor(documents, oldDocuments[i]);
+                documents[slot] = oldDocuments[i];
+                scores[slot] = oldScores[i];
+            }
+        }
+    }
+
+    // Postings and the document numbering they use; only the writer mutates the current one
+    private static final class Segment {
+        private final ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+        // Per document ID: the course ordinal and the weighted token count
+        private volatile int[] documentOrdinals;
+        private volatile int[] documentLengths;
+        // Per course ordinal: its live document ID, or -1
+        private volatile int[] liveDocuments;
+        private volatile int documentCount;
+
+        private Segment(int[] documentOrdinals, int[] documentLengths, int[] liveDocuments, int documentCount) {
+            this.documentOrdinals = documentOrdinals;
+            this.documentLengths = documentLengths;
+            this.liveDocuments = liveDocuments;
+            this.documentCount = documentCount;
+        }
+    }
+
+    private volatile Segment segment = new Segment(new int[16], new int[16], new int[0], 0);
+    private volatile int liveDocumentCount;
+    private volatile long liveTokenCount;
+    private int deadDocumentCount;
+
+    // Indexes a course, replacing whatever was indexed under its ID
+    public synchronized void indexCourse(Course course) {
+        int ordinal = course.getOrdinal();
+        Map<String, Integer> frequencies = new TreeMap<>();
+        for (String token : TextTokenizer.tokenize(course.getTitle())) {
+            frequencies.merge(token, TITLE_TERM_WEIGHT, Integer::sum);
+        }
+        for (String token : TextTokenizer.tokenize(course.getDescription())) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        for (String token : TextTokenizer.tokenize(course.getProvider())) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        for (String token : TextTokenizer.tokenize(course.getCategory().name())) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        // The ID too, so a partly typed ID finds its course
+        for (String token : TextTokenizer.tokenize(course.getCourseID())) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        int length = 0;
+        for (int frequency : frequencies.values()) {
+            length += frequency;
+        }
+
+        Segment current = segment;
+        int document = current.documentCount;
+        if (document == current.documentOrdinals.length) {
+            current.documentLengths = Arrays.copyOf(current.documentLengths, document * 2);
+            current.documentOrdinals = Arrays.copyOf(current.documentOrdinals, document * 2);
+        }
+        current.documentOrdinals[document] = ordinal;
+        current.documentLengths[document] = length;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            current.terms.computeIfAbsent(entry.getKey(), key -> new Postings()).append(document, entry.getValue());
+        }
+
+        if (ordinal >= current.liveDocuments.length) {
+            int oldLength = current.liveDocuments.length;
+            int[] grown = Arrays.copyOf(current.liveDocuments, Math.max(ordinal + 1, Math.max(16, oldLength * 2)));
+            Arrays.fill(grown, oldLength, grown.length, -1);
+            current.liveDocuments = grown;
+        }
+        int previous = current.liveDocuments[ordinal];
+        long tokens = liveTokenCount + length;
+        int live = liveDocumentCount + 1;
+        if (previous >= 0) {
+            tokens -= current.documentLengths[previous];
+            live--;
+            deadDocumentCount++;
+        }
+        current.liveDocuments[ordinal] = document;
+        liveTokenCount = tokens;
+        liveDocumentCount = live;
+        // Published last: everything above is visible to a query that sees this document
+        current.documentCount = document + 1;
+
+        if (deadDocumentCount >= Math.max(MIN_DEAD_DOCUMENTS_BEFORE_COMPACTION, live / 4)) {
+            compact();
+        }
+    }
+
+    /**
+     * Builds a segment holding only the live documents, renumbered 0 to live - 1 in
+     * their old order so posting lists stay sorted, and publishes it. Queries that
+     * already hold the old segment finish with it.
+     */
+    private void compact() {
+        Segment old = segment;
+        int documents = old.documentCount;
+        int[] ordinals = old.documentOrdinals;
+        int[] lengths = old.documentLengths;
+        int[] liveByOrdinal = old.liveDocuments;
+        // Old document ID to new, or -1 for a dead one
+        int[] renumbered = new int[documents];
+        int live = 0;
+        for (int document = 0; document < documents; document++) {
+            renumbered[document] = liveByOrdinal[ordinals[document]] == document ? live++ : -1;
+        }
+        int capacity = Math.max(16, live * 2);
+        int[] newOrdinals = new int[capacity];
+        int[] newLengths = new int[capacity];
+        for (int document = 0; document < documents; document++) {
+            if (renumbered[document] >= 0) {
+                newOrdinals[renumbered[document]] = ordinals[document];
+                newLengths[renumbered[document]] = lengths[document];
+            }
+        }
+        int[] newLiveByOrdinal = new int[liveByOrdinal.length];
+        for (int ordinal = 0; ordinal < liveByOrdinal.length; ordinal++) {
+            newLiveByOrdinal[ordinal] = liveByOrdinal[ordinal] >= 0 ? renumbered[liveByOrdinal[ordinal]] : -1;
+        }
+
+        Segment compacted = new Segment(newOrdinals, newLengths, newLiveByOrdinal, live);
+        for (Map.Entry<String, Postings> entry : old.terms.entrySet()) {
+            Postings rewritten = new Postings();
+            PostingReader reader = new PostingReader(entry.getValue());
+            while (reader.next()) {
+                if (renumbered[reader.document] >= 0) {
+                    rewritten.append(renumbered[reader.document], reader.frequency);
+                }
+            }
+            if (rewritten.documentFrequency > 0) {
+                compacted.terms.put(entry.getKey(), rewritten);
+            }
+        }
+        segment = compacted;
+        deadDocumentCount = 0;
+    }
+
+    /**
+     * Ordinals of the k best matching courses, best first. Terms are OR-ed; a term
+     * ending in '*' matches every term starting with what precedes it.
+     */
+    public int[] search(String query, int k) {
+        if (k <= 0) throw new IllegalArgumentException("k must be positive");
+        Segment current = segment;
+        int documents = current.documentCount;
+        if (documents == 0 || query == null) return new int[0];
+        int[] ordinals = current.documentOrdinals;
+        int[] lengths = current.documentLengths;
+        int[] liveByOrdinal = current.liveDocuments;
+        int live = Math.max(1, liveDocumentCount);
+        double averageLength = Math.max(1.0, (double) liveTokenCount / live);
+        List<Postings> matched = expand(current.terms, query);
+        long postingCount = 0;
+        for (Postings postings : matched) {
+            postingCount += postings.documentFrequency;
+        }
+        // Broad queries touch most documents; then a sweep over all scores beats tracking them
+        boolean dense = postingCount > documents / 8;
+
+        float[] scores = dense ? new float[documents] : null;
+        ScoreTable table = dense ? null : new ScoreTable(postingCount);
+        for (Postings postings : matched) {
+            // Dead documents still counted in the list must not push IDF below zero
+            int frequencyOfTerm = Math.min(postings.documentFrequency, live);
+            double idf = Math.log(1.0 + (live - frequencyOfTerm + 0.5) / (frequencyOfTerm + 0.5));
+            // Most (frequency, length) pairs are small, so their contributions are tabulated once per term
+            float[][] contributions = new float[CONTRIBUTION_FREQUENCIES][CONTRIBUTION_LENGTHS];
+            for (int frequency = 1; frequency < CONTRIBUTION_FREQUENCIES; frequency++) {
+                for (int length = 0; length < CONTRIBUTION_LENGTHS; length++) {
+                    contributions[frequency][length] = (float) contribution(idf, frequency, length, averageLength);
+                }
+            }
+            PostingReader reader = new PostingReader(postings);
+            while (reader.next()) {
+                int document = reader.document;
+                // Documents indexed after this query started are not part of its view
+                if (document >= documents) break;
+                int frequency = reader.frequency;
+                int length = lengths[document];
+                float contribution = frequency < CONTRIBUTION_FREQUENCIES && length < CONTRIBUTION_LENGTHS
+                        ? contributions[frequency][length]
+                        : (float) contribution(idf, frequency, length, averageLength);
+                if (dense) {
+                    scores[document] += contribution;
+                } else {
+                    table.add(document, contribution);
+                }
+            }
+        }
+
+        TopKSelector top = new TopKSelector(k);
+        int slots = dense ? documents : table.documents.length;
+        for (int slot = 0; slot < slots; slot++) {
+            int document = dense ? slot : table.documents[slot];
+            float score = dense ? scores[slot] : table.scores[slot];
+            if (document == ScoreTable.EMPTY || score == 0.0f) continue;
+            int ordinal = ordinals[document];
+            if (liveByOrdinal[ordinal] == document) {
+                top.offer(score, ordinal);
+            }
+        }
+        return top.toSortedIndices();
+    }
+
+    private static double contribution(double idf, int frequency, int length, double averageLength) {
+        return idf * frequency * (K1 + 1.0) / (frequency + K1 * (1.0 - B + B * length / averageLength));
+    }
+
+    private static List<Postings> expand(ConcurrentSkipListMap<String, Postings> terms, String query) {
+        List<Postings> matched = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String raw : query.trim().split("\\s+")) {
+            boolean prefix = raw.endsWith("*");
+            for (String token : TextTokenizer.tokenize(raw)) {
+                if (!seen.add(prefix ? token + "*" : token)) continue;
+                if (prefix) {
+                    // Capped: past MAX_PREFIX_TERMS, later terms in alphabetical order are not searched
+                    int expanded = 0;
+                    for (Postings postings : terms.subMap(token, token + Character.MAX_VALUE).values()) {
+                        if (expanded++ == MAX_PREFIX_TERMS) break;
+                        matched.add(postings);
+                    }
+                } else {
+                    Postings postings = terms.get(token);
+                    if (postings != null) {
+                        matched.add(postings);
+                    }
+                }
+            }
+        }
+        return matched;
+    }
+
+    private static int writeVarInt(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    // Decodes one posting list up to the size it had when the reader was created
+    private static final class PostingReader {
+        private final byte[] bytes;
+        private final int size;
+        private int offset;
+        private int document = -1;
+        private int frequency;
+
+        private PostingReader(Postings postings) {
+            // Size first: the array read after it holds at least that many bytes
+            this.size = postings.size;
+            this.bytes = postings.bytes;
+        }
+
+        private boolean next() {
+            if (offset >= size) return false;
+            document += readVarInt();
+            frequency = readVarInt();
+            return true;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
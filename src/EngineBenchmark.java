@@ -0,0 +1,300 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Standalone timing harness for the recommendation engine; correctness checks live
+ * in EngineChecks. Run with a large heap for the biggest catalogs, e.g.
+ * java -Xmx4g EngineBenchmark. Pass "search" to time full-text course search,
+ * "fuzzy" to time "did you mean" lookups, "query" to time filtered catalog queries
+ * and facet counts, "toprated" to time top-rated lists against sorting the catalog,
+ * "ratings" to time bulk-loading one course's ratings and reading its rating
+ * statistics, "reviews" to time top reviews against sorting every review, or
+ * "ingest" to time rating throughput as threads are added.
+ */
+public class EngineBenchmark {
+    private static final int[] CATALOG_SIZES = {1_000, 10_000, 100_000, 1_000_000};
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    // Fuzzy lookups take a millisecond or less, so they need far more rounds before the JIT has settled
+    private static final int FUZZY_WARMUP_ROUNDS = 3_000;
+    private static final int FUZZY_MEASURED_ROUNDS = 500;
+    private static final int QUERY_WARMUP_ROUNDS = 100;
+    private static final int QUERY_MEASURED_ROUNDS = 20;
+    private static final int[] RATING_LOAD_SIZES = {1_000, 10_000, 100_000, 1_000_000};
+    private static final int[] REVIEW_COUNTS = {100, 1_000, 10_000, 100_000};
+
+    private static final int INGEST_OPS_PER_THREAD = 100_000;
+    private static final int INGEST_RATERS_PER_THREAD = 500;
+    private static final int[] INGEST_SCALING_THREADS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "";
+        switch (mode) {
+            case "search": runSearchBenchmark(); break;
+            case "fuzzy": runFuzzyBenchmark(); break;
+            case "query": runQueryBenchmark(); break;
+            case "toprated": runTopRatedBenchmark(); break;
+            case "ratings": runRatingLoadBenchmark(); break;
+            case "reviews": runReviewBenchmark(); break;
+            case "ingest": runRatingThroughputBenchmark(); break;
+            default: runScalingBenchmark();
+        }
+    }
+
+    private static void runScalingBenchmark() {
+        System.out.println("📈 Recommendation benchmark (avg ms over " + MEASURED_ROUNDS + " uncached requests)");
+        System.out.printf("%12s %14s %14s %18s%n", "courses", "live", "precomputed", "precomputed+write");
+
+        for (int size : CATALOG_SIZES) {
+            RecommendationEngine engine = EngineFixtures.buildEngine(size);
+            User user = EngineFixtures.buildUser("bench1");
+            engine.addUserProfile(user);
+            String userId = user.getUserID();
+            int userOrdinal = user.getOrdinal();
+            Course hot = engine.getAllCourses().get(0);
+
+            double live = time(engine, userOrdinal, () -> engine.generateRecommendations(userId, 10, ScoringMode.LIVE));
+            double precomputed = time(engine, userOrdinal, () -> engine.generateRecommendations(userId, 10));
+            // An enrollment before every request keeps the touched partition's ordering stale
+            double withWrite = time(engine, userOrdinal, () -> {
+                hot.incrementEnrollment();
+                engine.generateRecommendations(userId, 10);
+            });
+            System.out.printf("%12d %14.3f %14.3f %18.3f%n", size, live, precomputed, withWrite);
+            engine.shutdown();
+        }
+    }
+
+    private static void runSearchBenchmark() {
+        System.out.println("🔎 Search benchmark (avg ms over " + MEASURED_ROUNDS + " queries, top 10)");
+        System.out.printf("%12s %12s %12s %12s%n", "courses", "selective", "broad", "prefix");
+
+        for (int size : CATALOG_SIZES) {
+            RecommendationEngine engine = EngineFixtures.buildEngine(size);
+            // One provider in fifty; every course; "benchmark" plus the numbers starting with 12
+            double selective = timeSearch(engine, "provider7");
+            double broad = timeSearch(engine, "synthetic course");
+            double prefix = timeSearch(engine, "benchmark 12*");
+            System.out.printf("%12d %12.3f %12.3f %12.3f%n", size, selective, broad, prefix);
+            engine.shutdown();
+        }
+    }
+
+    private static void runFuzzyBenchmark() {
+        System.out.println("🔤 Did-you-mean benchmark (avg ms over " + FUZZY_MEASURED_ROUNDS + " lookups, top 5)");
+        System.out.printf("%12s %12s %12s %12s%n", "courses", "id typo", "title typo", "vague");
+
+        for (int size : CATALOG_SIZES) {
+            RecommendationEngine engine = EngineFixtures.buildEngine(size);
+            // Two letters swapped in an ID; a dropped letter in a title; a word every title shares
+            String idTypo = "BENHC" + (size / 3);
+            String titleTypo = "Benchmark Corse " + (size / 3);
+            double idLookup = timeFuzzy(() -> engine.suggestCourses(idTypo, 5));
+            double titleLookup = timeFuzzy(() -> engine.suggestCourses(titleTypo, 5));
+            double vague = timeFuzzy(() -> engine.suggestCourses("benchmark", 5));
+            System.out.printf("%12d %12.3f %12.3f %12.3f%n", size, idLookup, titleLookup, vague);
+            engine.shutdown();
+        }
+    }
+
+    private static void runQueryBenchmark() {
+        System.out.println("🧮 Catalog query benchmark (avg ms over " + QUERY_MEASURED_ROUNDS + " rounds)");
+        System.out.printf("%12s %12s %12s %12s %12s%n", "courses", "matches", "stream scan", "bitmaps", "facets");
+
+        // Three attributes ANDed, one of them a range
+        CatalogQuery query = CatalogQuery.all()
+                .withCategories(CourseCategory.PROGRAMMING, CourseCategory.DATA_SCIENCE)
+                .withDifficulties(CourseDifficulty.BEGINNER)
+                .withMinAverageRating(3.5);
+        for (int size : CATALOG_SIZES) {
+            RecommendationEngine engine = EngineFixtures.buildEngine(size);
+            int matches = engine.queryCourses(query).size();
+            double scan = timeLookup(() -> engine.getAllCourses().stream().filter(query::matches).count(),
+                    QUERY_WARMUP_ROUNDS, QUERY_MEASURED_ROUNDS);
+            double bitmaps = timeLookup(() -> engine.queryCourses(query), QUERY_WARMUP_ROUNDS, QUERY_MEASURED_ROUNDS);
+            double facets = timeLookup(() -> engine.getFacets(query), QUERY_WARMUP_ROUNDS, QUERY_MEASURED_ROUNDS);
+            System.out.printf("%12d %12d %12.3f %12.3f %12.3f%n", size, matches, scan, bitmaps, facets);
+            engine.shutdown();
+        }
+    }
+
+    private static void runTopRatedBenchmark() {
+        System.out.println("🏆 Top-rated benchmark (avg ms over " + QUERY_MEASURED_ROUNDS + " rounds, top 10)");
+        System.out.printf("%12s %12s %12s %12s %12s%n", "courses", "full sort", "overall", "category", "range");
+
+        for (int size : CATALOG_SIZES) {
+            RecommendationEngine engine = EngineFixtures.buildEngine(size);
+            double sort = timeLookup(() -> engine.getAllCourses().stream()
+                            .filter(c -> c.getRatingCount() > 0)
+                            .sorted(Comparator.comparingDouble((Course c) ->
+                                    c.getBayesianRating(TopRatedIndex.PRIOR_MEAN, TopRatedIndex.PRIOR_WEIGHT)).reversed())
+                            .limit(10)
+                            .count(),
+                    QUERY_WARMUP_ROUNDS, QUERY_MEASURED_ROUNDS);
+            double overall = timeLookup(() -> engine.topRatedCourses(10), QUERY_WARMUP_ROUNDS, QUERY_MEASURED_ROUNDS);
+            double category = timeLookup(() -> engine.topRatedCourses(CourseCategory.DESIGN, 10),
+                    QUERY_WARMUP_ROUNDS, QUERY_MEASURED_ROUNDS);
+            double range = timeLookup(() -> engine.coursesRatedBetween(3.0, 3.5, 10),
+                    QUERY_WARMUP_ROUNDS, QUERY_MEASURED_ROUNDS);
+            System.out.printf("%12d %12.3f %12.3f %12.3f %12.3f%n", size, sort, overall, category, range);
+            engine.shutdown();
+        }
+    }
+
+    private static void runRatingLoadBenchmark() {
+        System.out.println("⭐ Rating load benchmark (one course, one rating per rater)");
+        System.out.printf("%12s %12s %14s %16s %14s%n", "ratings", "load ms", "statistics ms",
+                "retained B/rating", "view alloc B");
+
+        for (int size : RATING_LOAD_SIZES) {
+            Random random = new Random(EngineFixtures.SEED);
+            String[] raters = new String[size];
+            for (int i = 0; i < size; i++) {
+                raters[i] = "rater" + i;
+                // Interned up front so the dictionary's growth is not counted against the course
+                IdDictionary.USERS.intern(raters[i]);
+            }
+            Course course = new Course("RATED" + size, "Rated Course", CourseCategory.DESIGN,
+                    CourseDifficulty.BEGINNER, "provider", "A course that collects many ratings");
+            long heapBefore = usedHeapAfterGc();
+            long start = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                course.addRating(raters[i], 1 + random.nextInt(5));
+            }
+            double load = (System.nanoTime() - start) / 1_000_000.0;
+            double retained = (double) (usedHeapAfterGc() - heapBefore) / size;
+            double statistics = timeLookup(() -> {
+                course.getMedianRating();
+                course.getRatingPercentile(90);
+                course.getRatingStandardDeviation();
+                course.getBayesianRating(TopRatedIndex.PRIOR_MEAN, TopRatedIndex.PRIOR_WEIGHT);
+            }, QUERY_WARMUP_ROUNDS, QUERY_MEASURED_ROUNDS);
+            long viewAllocated = allocatedBy(course::getRatingLog);
+            System.out.printf("%12d %12.3f %14.6f %16.1f %14d%n", size, load, statistics, retained,
+                    viewAllocated);
+        }
+    }
+
+    private static void runReviewBenchmark() {
+        System.out.println("💬 Review benchmark (one course, avg ms over " + QUERY_MEASURED_ROUNDS + " rounds)");
+        System.out.printf("%12s %12s %12s %12s %14s%n", "reviews", "add", "full sort", "top 2", "page at 100");
+
+        String[] words = {"clear", "examples", "pace", "projects", "hard", "useful", "slides", "quizzes",
+                "instructor", "helpful", "boring", "deep", "practical", "theory", "exercises", "great"};
+        for (int size : REVIEW_COUNTS) {
+            Random random = new Random(EngineFixtures.SEED);
+            Course course = new Course("REVIEWED" + size, "Reviewed Course", CourseCategory.DESIGN,
+                    CourseDifficulty.BEGINNER, "provider", "A course that collects many reviews");
+            String[] texts = new String[size];
+            for (int i = 0; i < size; i++) {
+                StringBuilder text = new StringBuilder();
+                for (int w = random.nextInt(30); w >= 0; w--) {
+                    text.append(words[random.nextInt(words.length)]).append(' ');
+                }
+                texts[i] = text.toString().trim();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                course.addReview("reviewer" + i, texts[i]);
+            }
+            double add = (System.nanoTime() - start) / 1_000_000.0;
+            // What getTopReviews used to do on every call
+            double sort = timeLookup(() -> course.getReviews().values().stream()
+                            .flatMap(List::stream)
+                            .sorted(Comparator.comparingInt(String::length).reversed())
+                            .limit(2)
+                            .count(),
+                    QUERY_WARMUP_ROUNDS, QUERY_MEASURED_ROUNDS);
+            double top = timeLookup(() -> course.getTopReviews(2), QUERY_WARMUP_ROUNDS, QUERY_MEASURED_ROUNDS);
+            double page = timeLookup(() -> course.getReviewPage(100, 5), QUERY_WARMUP_ROUNDS, QUERY_MEASURED_ROUNDS);
+            System.out.printf("%12d %12.3f %12.3f %12.4f %14.4f%n", size, add, sort, top, page);
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Bytes the calling thread allocates while running the action once
+    private static long allocatedBy(Runnable action) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        action.run();
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    private static double timeSearch(RecommendationEngine engine, String query) {
+        return timeLookup(() -> engine.searchCourses(query, 10), WARMUP_ROUNDS, MEASURED_ROUNDS);
+    }
+
+    private static double timeFuzzy(Runnable lookup) {
+        return timeLookup(lookup, FUZZY_WARMUP_ROUNDS, FUZZY_MEASURED_ROUNDS);
+    }
+
+    private static double timeLookup(Runnable lookup, int warmupRounds, int measuredRounds) {
+        for (int i = 0; i < warmupRounds; i++) {
+            lookup.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < measuredRounds; i++) {
+            lookup.run();
+        }
+        return (System.nanoTime() - start) / (measuredRounds * 1_000_000.0);
+    }
+
+    // Average milliseconds per request, with the user's cache entry dropped so every call computes
+    private static double time(RecommendationEngine engine, int userOrdinal, Runnable request) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            engine.getRecommendationCache().invalidateUser(userOrdinal);
+            request.run();
+        }
+        long total = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            engine.getRecommendationCache().invalidateUser(userOrdinal);
+            long start = System.nanoTime();
+            request.run();
+            total += System.nanoTime() - start;
+        }
+        return total / (MEASURED_ROUNDS * 1_000_000.0);
+    }
+
+    // Ratings per millisecond, each thread on its own course or all on one, with no listeners attached
+    private static void runRatingThroughputBenchmark() throws InterruptedException {
+        System.out.println("🧵 Rating throughput (ratings per ms), no listeners attached:");
+        System.out.printf("%12s %16s %16s%n", "threads", "own course each", "one shared course");
+        for (int threads : INGEST_SCALING_THREADS) {
+            double spread = ratingThroughput(threads, false);
+            double shared = ratingThroughput(threads, true);
+            System.out.printf("%12d %16.0f %16.0f%n", threads, spread, shared);
+        }
+    }
+
+    private static double ratingThroughput(int threads, boolean shared) throws InterruptedException {
+        Course sharedCourse = new Course("SHARED" + threads, "Shared", CourseCategory.DESIGN,
+                CourseDifficulty.BEGINNER, "provider", "Rated by every thread");
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            String[] raters = EngineFixtures.raters("throughput" + t, INGEST_RATERS_PER_THREAD);
+            Course course = shared ? sharedCourse : new Course("OWN" + threads + "-" + t, "Own",
+                    CourseCategory.DESIGN, CourseDifficulty.BEGINNER, "provider", "Rated by one thread");
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < INGEST_OPS_PER_THREAD; i++) {
+                    course.addRating(raters[i % raters.length], 1 + i % 5);
+                }
+                return null;
+            });
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        return (double) threads * INGEST_OPS_PER_THREAD / ((System.nanoTime() - started) / 1_000_000.0);
+    }
+}
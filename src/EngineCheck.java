@@ -0,0 +1,13 @@
+import java.util.List;
+
+/**
+ * One focused correctness check of the engine, run by EngineChecks. A check adds
+ * a line per problem to failures rather than stopping at the first, so one run
+ * reports everything that is wrong.
+ */
+interface EngineCheck {
+    // What the check is selected by on the command line
+    String name();
+
+    void run(List<String> failures) throws Exception;
+}
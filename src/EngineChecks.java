@@ -0,0 +1,49 @@
+import java.util.*;
+
+/**
+ * Correctness checks for the engine, kept apart from the timings in EngineBenchmark.
+ * Runs every check, or only the named ones, e.g. java EngineChecks stress equivalence,
+ * and exits non-zero if any of them fails.
+ */
+public class EngineChecks {
+    private static final int MAX_REPORTED_FAILURES = 10;
+
+    private static final List<EngineCheck> CHECKS = Arrays.asList(
+            new SearchCheck(),
+            new FuzzyCheck(),
+            new QueryCheck(),
+            new TopRatedCheck(),
+            new RatingStatisticsCheck(),
+            new ReviewCheck(),
+            new EquivalenceCheck(),
+            new IngestCheck(),
+            new StressCheck());
+
+    public static void main(String[] args) throws Exception {
+        Set<String> selected = new LinkedHashSet<>(Arrays.asList(args));
+        for (EngineCheck check : CHECKS) {
+            selected.remove(check.name());
+        }
+        if (!selected.isEmpty()) {
+            System.out.println("Unknown checks: " + selected);
+            System.exit(2);
+        }
+
+        boolean passed = true;
+        for (EngineCheck check : CHECKS) {
+            if (args.length > 0 && !Arrays.asList(args).contains(check.name())) continue;
+            List<String> failures = new ArrayList<>();
+            check.run(failures);
+            if (failures.isEmpty()) {
+                System.out.println("✅ " + check.name() + " check passed");
+            } else {
+                passed = false;
+                failures.stream().limit(MAX_REPORTED_FAILURES).forEach(failure -> System.out.println("❌ " + failure));
+                System.out.println("❌ " + check.name() + " check failed");
+            }
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+}
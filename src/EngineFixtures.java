@@ -0,0 +1,52 @@
+import java.time.Clock;
+import java.util.*;
+
+/**
+ * Deterministic engines and users shared by EngineBenchmark and the EngineChecks.
+ */
+final class EngineFixtures {
+    static final long SEED = 42L;
+
+    private EngineFixtures() {
+    }
+
+    // Synthetic catalog with a deterministic spread of categories, ratings and enrollment
+    static RecommendationEngine buildEngine(int size) {
+        Random random = new Random(SEED);
+        CourseCategory[] categories = CourseCategory.values();
+        CourseDifficulty[] difficulties = CourseDifficulty.values();
+        // A frozen clock keeps recency, and therefore every ranking, identical across rounds
+        RecommendationEngine engine = new RecommendationEngine(Clock.fixed(Clock.systemDefaultZone().instant(),
+                Clock.systemDefaultZone().getZone()));
+
+        for (int i = 0; i < size; i++) {
+            Course course = new Course("BENCH" + i, "Benchmark Course " + i,
+                    categories[i % categories.length], difficulties[i % difficulties.length],
+                    "Provider" + (i % 50), "Synthetic course number " + i);
+            int enrollments = random.nextInt(500);
+            for (int e = 0; e < enrollments; e++) {
+                course.incrementEnrollment();
+            }
+            course.addRating("rater" + (i % 1000), 1 + random.nextInt(5));
+            engine.addCourse(course);
+        }
+        return engine;
+    }
+
+    static User buildUser(String userId) {
+        User user = new User(userId, "Benchmark User", userId + "@example.com", "Bench123!");
+        user.addInterest(CourseCategory.PROGRAMMING.name());
+        user.addInterest(CourseCategory.DATA_SCIENCE.name());
+        return user;
+    }
+
+    // Interned up front, so the dictionary's growth is not part of what a writer does
+    static String[] raters(String prefix, int count) {
+        String[] raters = new String[count];
+        for (int i = 0; i < raters.length; i++) {
+            raters[i] = prefix + "-" + i;
+            IdDictionary.USERS.intern(raters[i]);
+        }
+        return raters;
+    }
+}
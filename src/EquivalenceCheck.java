@@ -0,0 +1,76 @@
+import java.util.*;
+
+/**
+ * Random single-threaded mutations, each followed by one user's LIVE and PRECOMPUTED
+ * rankings, which must list the same courses in the same order, ties included.
+ * Every user is compared again at the end.
+ */
+final class EquivalenceCheck implements EngineCheck {
+    private static final int CATALOG_SIZE = 5_000;
+    private static final int USERS = 16;
+    private static final int MUTATIONS = 5_000;
+    private static final int K = 1_000;
+
+    @Override
+    public String name() {
+        return "equivalence";
+    }
+
+    @Override
+    public void run(List<String> failures) {
+        System.out.println("⚖️ Equivalence check: " + MUTATIONS + " mutations on " + CATALOG_SIZE + " courses, top " + K);
+        RecommendationEngine engine = EngineFixtures.buildEngine(CATALOG_SIZE);
+        CourseCategory[] categories = CourseCategory.values();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = EngineFixtures.buildUser("equivalence" + i);
+            engine.addUserProfile(user);
+            users.add(user);
+        }
+
+        Random random = new Random(EngineFixtures.SEED);
+        int added = 0;
+        for (int m = 0; m < MUTATIONS && failures.isEmpty(); m++) {
+            List<Course> courses = engine.getAllCourses();
+            Course course = courses.get(random.nextInt(courses.size()));
+            int action = random.nextInt(10);
+            if (action < 4) {
+                course.addRating("eq" + random.nextInt(200), 1 + random.nextInt(5));
+            } else if (action < 7) {
+                course.incrementEnrollment();
+            } else if (action < 8) {
+                engine.addCourse(new Course("EQUIV" + added, "Equivalence " + added++,
+                        categories[random.nextInt(categories.length)], CourseDifficulty.BEGINNER,
+                        "Provider", "Equivalence course"));
+            } else if (action < 9) {
+                // Re-adding an ID replaces the course in place
+                engine.addCourse(new Course(course.getCourseID(), course.getTitle(),
+                        categories[random.nextInt(categories.length)], course.getDifficulty(),
+                        course.getProvider(), course.getDescription()));
+            } else {
+                User user = users.get(random.nextInt(users.size()));
+                user.setInterests(new HashSet<>(Arrays.asList(categories[random.nextInt(categories.length)].name(),
+                        categories[random.nextInt(categories.length)].name())));
+            }
+            compareRankings(engine, users.get(random.nextInt(users.size())), failures);
+        }
+        for (User user : users) {
+            compareRankings(engine, user, failures);
+        }
+        engine.shutdown();
+    }
+
+    private static void compareRankings(RecommendationEngine engine, User user, List<String> failures) {
+        List<Course> live = engine.generateRecommendations(user.getUserID(), K, ScoringMode.LIVE);
+        List<Course> precomputed = engine.generateRecommendations(user.getUserID(), K, ScoringMode.PRECOMPUTED);
+        if (!live.equals(precomputed)) {
+            int rank = 0;
+            while (rank < Math.min(live.size(), precomputed.size()) && live.get(rank).equals(precomputed.get(rank))) {
+                rank++;
+            }
+            failures.add("Rankings for " + user.getUserID() + " part at rank " + rank + ": live "
+                    + (rank < live.size() ? live.get(rank).getCourseID() : "end") + ", precomputed "
+                    + (rank < precomputed.size() ? precomputed.get(rank).getCourseID() : "end"));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import java.util.*;
+
+/**
+ * "Did you mean" lookups must put the intended course first for an exact ID, an
+ * ID with two letters swapped and a title with a letter dropped.
+ */
+final class FuzzyCheck implements EngineCheck {
+    private static final int CATALOG_SIZE = 10_000;
+
+    @Override
+    public String name() {
+        return "fuzzy";
+    }
+
+    @Override
+    public void run(List<String> failures) {
+        RecommendationEngine engine = EngineFixtures.buildEngine(CATALOG_SIZE);
+        // Multi-digit numbers, so a swapped pair of letters is a small part of the ID
+        for (int i = 1_000; i < CATALOG_SIZE; i += 731) {
+            String id = "BENCH" + i;
+            expectFirst(engine, id, id, failures);
+            expectFirst(engine, "BENHC" + i, id, failures);
+            expectFirst(engine, "Benchmark Corse " + i, id, failures);
+        }
+        engine.shutdown();
+    }
+
+    private static void expectFirst(RecommendationEngine engine, String lookup, String id, List<String> failures) {
+        List<Course> suggested = engine.suggestCourses(lookup, 5);
+        if (suggested.isEmpty() || !suggested.get(0).getCourseID().equals(id)) {
+            failures.add("\"" + lookup + "\" did not suggest " + id + " first: "
+                    + (suggested.isEmpty() ? "nothing" : suggested.get(0).getCourseID()));
+        }
+    }
+}
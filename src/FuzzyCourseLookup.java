@@ -0,0 +1,337 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Typo-tolerant lookup of courses by ID or title, for "did you mean"
+ * suggestions. Both strings are indexed by their character trigrams. A query
+ * only scans the posting lists of its rarest trigrams: any text sharing enough
+ * trigrams with the query must appear in one of them. Candidates are ranked by
+ * shared trigrams, then by edit distance to the query.
+ *
+ * Entries get increasing IDs and are never rewritten. A course whose title
+ * changes gets a new title entry and the old one is skipped as dead until
+ * compaction. Writers are serialized on this index; queries never lock.
+ */
+public class FuzzyCourseLookup {
+    // Share of the query's trigrams a text needs to count as a candidate
+    private static final double MIN_SHARED_FRACTION = 0.5;
+    // Bound the work for very vague queries, at the price of possibly missing a candidate
+    static final int MAX_SCANNED_POSTINGS = 30_000;
+    static final int MAX_VERIFIED = 250;
+    private static final int MAX_LENGTH_GAP = 32;
+    private static final int MIN_DEAD_ENTRIES_BEFORE_COMPACTION = 1024;
+    private static final char PADDING = ' ';
+
+    // Append-only list of entry IDs, ascending; size is bumped after the slot is written
+    private static final class GramPostings {
+        private volatile int[] entries = new int[4];
+        private volatile int size;
+
+        private void append(int entry) {
+            int n = size;
+            if (n == entries.length) {
+                entries = Arrays.copyOf(entries, n * 2);
+            }
+            entries[n] = entry;
+            size = n + 1;
+        }
+    }
+
+    private volatile Map<Long, GramPostings> grams = new ConcurrentHashMap<>();
+    // Per entry ID: the course ordinal, the normalized text and its length
+    private volatile int[] entryOrdinals = new int[16];
+    private volatile String[] entryTexts = new String[16];
+    private volatile int[] entryLengths = new int[16];
+    private volatile int entryCount;
+    // Per course ordinal: the live ID and title entries, or -1
+    private volatile int[] idEntries = new int[0];
+    private volatile int[] titleEntries = new int[0];
+    private int deadEntryCount;
+
+    public synchronized void indexCourse(Course course) {
+        int ordinal = course.getOrdinal();
+        if (ordinal >= idEntries.length) {
+            int oldLength = idEntries.length;
+            int capacity = Math.max(ordinal + 1, Math.max(16, oldLength * 2));
+            int[] grownIds = Arrays.copyOf(idEntries, capacity);
+            int[] grownTitles = Arrays.copyOf(titleEntries, capacity);
+            Arrays.fill(grownIds, oldLength, capacity, -1);
+            Arrays.fill(grownTitles, oldLength, capacity, -1);
+            idEntries = grownIds;
+            titleEntries = grownTitles;
+        }
+        // The ID never changes under an ordinal; only a new title needs a new entry
+        if (idEntries[ordinal] < 0) {
+            idEntries[ordinal] = addEntry(ordinal, normalize(course.getCourseID()));
+        }
+        String title = normalize(course.getTitle());
+        int previous = titleEntries[ordinal];
+        if (previous >= 0 && entryTexts[previous].equals(title)) return;
+        titleEntries[ordinal] = addEntry(ordinal, title);
+        if (previous >= 0 && ++deadEntryCount >= Math.max(MIN_DEAD_ENTRIES_BEFORE_COMPACTION, entryCount / 4)) {
+            compact();
+        }
+    }
+
+    private int addEntry(int ordinal, String text) {
+        int entry = entryCount;
+        if (entry == entryOrdinals.length) {
+            entryTexts = Arrays.copyOf(entryTexts, entry * 2);
+            entryOrdinals = Arrays.copyOf(entryOrdinals, entry * 2);
+            entryLengths = Arrays.copyOf(entryLengths, entry * 2);
+        }
+        entryOrdinals[entry] = ordinal;
+        entryTexts[entry] = text;
+        entryLengths[entry] = text.length();
+        for (long gram : trigrams(text)) {
+            grams.computeIfAbsent(gram, key -> new GramPostings()).append(entry);
+        }
+        // Published last: a query that sees this entry also sees its slots
+        entryCount = entry + 1;
+        return entry;
+    }
+
+    private boolean isLive(int entry) {
+        int ordinal = entryOrdinals[entry];
+        return idEntries[ordinal] == entry || titleEntries[ordinal] == entry;
+    }
+
+    // Rebuilds the postings from live entries only; entry IDs stay as they are
+    private void compact() {
+        Map<Long, GramPostings> rebuilt = new ConcurrentHashMap<>();
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (!isLive(entry)) {
+                entryTexts[entry] = null;
+                continue;
+            }
+            for (long gram : trigrams(entryTexts[entry])) {
+                rebuilt.computeIfAbsent(gram, key -> new GramPostings()).append(entry);
+            }
+        }
+        grams = rebuilt;
+        deadEntryCount = 0;
+    }
+
+    /**
+     * Ordinals of up to k courses whose ID or title is closest to the text, best
+     * first. Empty if nothing shares enough trigrams with it.
+     */
+    public int[] suggest(String text, int k) {
+        if (k <= 0) throw new IllegalArgumentException("k must be positive");
+        String query = normalize(text);
+        if (query.isEmpty()) return new int[0];
+        int entries = entryCount;
+        int[] ordinals = entryOrdinals;
+        String[] texts = entryTexts;
+        int[] lengths = entryLengths;
+        Map<Long, GramPostings> index = grams;
+
+        long[] queryGrams = trigrams(query);
+        int minShared = Math.max(1, (int) Math.ceil(queryGrams.length * MIN_SHARED_FRACTION));
+        // Rarest first: a text sharing minShared grams must hold one of the first n - minShared + 1
+        List<GramPostings> lists = new ArrayList<>();
+        for (long gram : queryGrams) {
+            GramPostings postings = index.get(gram);
+            if (postings != null) {
+                lists.add(postings);
+            }
+        }
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+        int scanned = Math.min(lists.size(), queryGrams.length - minShared + 1);
+
+        // The scanned lists nominate candidates and are read up to the budget. The further lists are
+        // not read at all: probing them for every candidate costs more than it saves in verification.
+        // Lists not read, or cut short, each count as unread
+        int[] limits = new int[scanned];
+        int postingsRead = 0;
+        int unread = lists.size() - scanned;
+        for (int l = 0; l < scanned; l++) {
+            int size = lists.get(l).size;
+            limits[l] = Math.min(size, MAX_SCANNED_POSTINGS - postingsRead);
+            if (limits[l] < size) unread++;
+            postingsRead += limits[l];
+        }
+
+        // Counts per nominated entry, in an open-addressing table sized for the postings read
+        int capacity = Integer.highestOneBit(Math.max(1, postingsRead)) * 4;
+        int[] slots = new int[capacity];
+        int[] slotCounts = new int[capacity];
+        Arrays.fill(slots, -1);
+        int[] candidateEntries = new int[postingsRead];
+        int candidateCount = 0;
+        for (int l = 0; l < scanned; l++) {
+            int[] postingEntries = lists.get(l).entries;
+            for (int p = 0; p < limits[l]; p++) {
+                int entry = postingEntries[p];
+                // Entries added after this query started are not part of its view
+                if (entry >= entries) break;
+                int slot = (entry * 0x9E3779B1) & (capacity - 1);
+                while (slots[slot] >= 0 && slots[slot] != entry) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                if (slots[slot] < 0) {
+                    slots[slot] = entry;
+                    candidateEntries[candidateCount++] = entry;
+                }
+                slotCounts[slot]++;
+            }
+        }
+        int[] candidateCounts = new int[candidateCount];
+        for (int c = 0; c < candidateCount; c++) {
+            int entry = candidateEntries[c];
+            int slot = (entry * 0x9E3779B1) & (capacity - 1);
+            while (slots[slot] != entry) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            candidateCounts[c] = slotCounts[slot];
+        }
+
+        // Candidates ordered by their upper bound, best first. Within one bound, texts closest in
+        // length go first, as the length gap bounds the edit distance; then in entry order
+        int maxCount = 0;
+        for (int c = 0; c < candidateCount; c++) {
+            maxCount = Math.max(maxCount, candidateCounts[c]);
+        }
+        int gaps = MAX_LENGTH_GAP + 1;
+        int[] keys = new int[candidateCount];
+        int[] keyStarts = new int[(maxCount + 1) * gaps + 1];
+        for (int c = 0; c < candidateCount; c++) {
+            keys[c] = (maxCount - candidateCounts[c]) * gaps + lengthGap(query.length(), lengths[candidateEntries[c]]);
+            keyStarts[keys[c] + 1]++;
+        }
+        for (int key = 1; key < keyStarts.length; key++) {
+            keyStarts[key] += keyStarts[key - 1];
+        }
+        int[] ordered = new int[candidateCount];
+        int[] fill = Arrays.copyOf(keyStarts, keyStarts.length);
+        for (int c = 0; c < candidateCount; c++) {
+            ordered[fill[keys[c]]++] = candidateEntries[c];
+        }
+
+        // Best entry per course: most shared trigrams, then fewest edits, then lower ordinal.
+        // Entries are verified in that order, until none left can beat the k-th best so far
+        Map<Integer, int[]> best = new HashMap<>();
+        boolean[] seen = new boolean[queryGrams.length];
+        int verified = 0;
+        for (int key = 0; key + 1 < keyStarts.length && verified < MAX_VERIFIED; key++) {
+            if (keyStarts[key] == keyStarts[key + 1]) continue;
+            // Counts from the lists read only ever miss the unread ones
+            int[] bound = {maxCount - key / gaps + unread, key % gaps};
+            if (bound[0] < minShared) break;
+            if (best.size() >= k && compareRanks(kthBestRank(best, k), bound) < 0) break;
+            for (int i = keyStarts[key]; i < keyStarts[key + 1] && verified < MAX_VERIFIED; i++) {
+                int entry = ordered[i];
+                String candidate = texts[entry];
+                if (candidate == null || !isLive(entry)) continue;
+                verified++;
+                // With every list read, the count is exact
+                int shared = unread == 0 ? maxCount - key / gaps : sharedTrigrams(queryGrams, candidate, seen);
+                if (shared < minShared) continue;
+                int[] rank = {shared, editDistance(query, candidate)};
+                best.merge(ordinals[entry], rank, (a, b) -> compareRanks(a, b) <= 0 ? a : b);
+            }
+        }
+
+        List<Map.Entry<Integer, int[]>> ranked = new ArrayList<>(best.entrySet());
+        ranked.sort((a, b) -> {
+            int byRank = compareRanks(a.getValue(), b.getValue());
+            return byRank != 0 ? byRank : Integer.compare(a.getKey(), b.getKey());
+        });
+        int[] result = new int[Math.min(k, ranked.size())];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ranked.get(i).getKey();
+        }
+        return result;
+    }
+
+    // Length difference, capped: beyond the cap, texts are too far apart to order by it
+    private static int lengthGap(int queryLength, int candidateLength) {
+        return Math.min(Math.abs(candidateLength - queryLength), MAX_LENGTH_GAP);
+    }
+
+    private static int[] kthBestRank(Map<Integer, int[]> best, int k) {
+        List<int[]> ranks = new ArrayList<>(best.values());
+        ranks.sort(FuzzyCourseLookup::compareRanks);
+        return ranks.get(k - 1);
+    }
+
+    // Negative if a ranks before b
+    private static int compareRanks(int[] a, int[] b) {
+        return a[0] != b[0] ? Integer.compare(b[0], a[0]) : Integer.compare(a[1], b[1]);
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    // Distinct trigrams of the text padded with two spaces in front and one behind, ascending
+    static long[] trigrams(String text) {
+        long[] result = new long[text.length() + 1];
+        char first = PADDING;
+        char second = PADDING;
+        for (int i = 0; i < result.length; i++) {
+            char third = i < text.length() ? text.charAt(i) : PADDING;
+            result[i] = gram(first, second, third);
+            first = second;
+            second = third;
+        }
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+
+    private static long gram(char first, char second, char third) {
+        long packed = ((long) first << 32) | ((long) second << 16) | third;
+        // Scrambled (multiplying by an odd constant is reversible) so that similar trigrams do not collide in hash maps
+        return packed * 0x9E3779B97F4A7C15L;
+    }
+
+    // How many of the query's trigrams occur in the text, walking the text's trigrams in place
+    private static int sharedTrigrams(long[] queryGrams, String text, boolean[] seen) {
+        Arrays.fill(seen, false);
+        int shared = 0;
+        char first = PADDING;
+        char second = PADDING;
+        for (int i = 0; i <= text.length(); i++) {
+            char third = i < text.length() ? text.charAt(i) : PADDING;
+            int found = Arrays.binarySearch(queryGrams, gram(first, second, third));
+            if (found >= 0 && !seen[found]) {
+                seen[found] = true;
+                shared++;
+            }
+            first = second;
+            second = third;
+        }
+        return shared;
+    }
+
+    // Edit distance counting a swap of two adjacent characters as one edit, the most common typo
+    static int editDistance(String a, String b) {
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+                }
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide interning of string IDs to dense ints (0, 1, 2, ...), assigned
+ * in first-seen order and never reused. Courses and users intern their ID once
+ * at construction, so engine-side structures can key on plain ints and index
+ * arrays directly; the string IDs stay the public façade.
+ */
+public final class IdDictionary {
+    public static final IdDictionary COURSES = new IdDictionary();
+    public static final IdDictionary USERS = new IdDictionary();
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+    // Reverse lookup; replaced wholesale on growth, published slots are never rewritten
+    private volatile String[] ids = new String[INITIAL_CAPACITY];
+    private volatile int size;
+
+    private IdDictionary() {
+    }
+
+    public int intern(String id) {
+        if (id == null) throw new IllegalArgumentException("ID cannot be null");
+        Integer ordinal = ordinals.get(id);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (this) {
+            ordinal = ordinals.get(id);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            int next = size;
+            if (next == ids.length) {
+                ids = Arrays.copyOf(ids, next * 2);
+            }
+            ids[next] = id;
+            size = next + 1;
+            // Mapped last, so any ordinal a reader can obtain already resolves back to its ID
+            ordinals.put(id, next);
+            return next;
+        }
+    }
+
+    // The ordinal of an already interned ID, or -1; never assigns a new one
+    public int lookup(String id) {
+        if (id == null) return -1;
+        Integer ordinal = ordinals.get(id);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public String idOf(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) throw new IndexOutOfBoundsException("Ordinal " + ordinal);
+        return ids[ordinal];
+    }
+
+    // Upper bound (exclusive) of every ordinal handed out so far
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Threads rate, enroll in and review the same few courses at once; afterwards every
+ * course's counts and aggregates, and every index fed by its events, must be exact.
+ */
+final class IngestCheck implements EngineCheck {
+    private static final int CATALOG_SIZE = 2_000;
+    private static final int HOT_COURSES = 16;
+    private static final int THREADS = 8;
+    private static final int OPS_PER_THREAD = 100_000;
+    private static final int RATERS_PER_THREAD = 500;
+
+    @Override
+    public String name() {
+        return "ingest";
+    }
+
+    @Override
+    public void run(List<String> failures) throws InterruptedException {
+        System.out.println("🧵 Ingest check: " + THREADS + " threads x " + OPS_PER_THREAD
+                + " writes on " + HOT_COURSES + " shared courses");
+        RecommendationEngine engine = EngineFixtures.buildEngine(CATALOG_SIZE);
+        List<Course> hot = engine.getAllCourses().subList(0, HOT_COURSES);
+        int[][] histogramsBefore = new int[hot.size()][];
+        int[] enrollmentBefore = new int[hot.size()];
+        for (int c = 0; c < hot.size(); c++) {
+            histogramsBefore[c] = hot.get(c).getRatingHistogram();
+            enrollmentBefore[c] = hot.get(c).getEnrollmentCount();
+        }
+
+        // Per thread and course: ratings per star value at 0-4, then enrollments, then reviews
+        long[][][] expected = new long[THREADS][hot.size()][7];
+        ConcurrentLinkedQueue<String> writerFailures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            String[] raters = EngineFixtures.raters("ingest" + thread, RATERS_PER_THREAD);
+            pool.submit(() -> {
+                Random random = new Random(2000 + thread);
+                long[][] counts = expected[thread];
+                try {
+                    start.await();
+                    for (int i = 0; i < OPS_PER_THREAD; i++) {
+                        int c = random.nextInt(hot.size());
+                        Course course = hot.get(c);
+                        String rater = raters[random.nextInt(raters.length)];
+                        int action = random.nextInt(10);
+                        if (action < 6) {
+                            int stars = 1 + random.nextInt(5);
+                            if (action < 5) {
+                                course.addRating(rater, stars);
+                            } else {
+                                course.rateCourse(rater, stars);
+                            }
+                            counts[c][stars - 1]++;
+                        } else if (action < 9) {
+                            course.incrementEnrollment();
+                            counts[c][5]++;
+                        } else {
+                            course.addReview(rater, "Review " + thread + "-" + i);
+                            counts[c][6]++;
+                        }
+                    }
+                } catch (RuntimeException | InterruptedException e) {
+                    writerFailures.add("Writer failed: " + e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        failures.addAll(writerFailures);
+
+        // Every course's own counts and aggregates
+        for (int c = 0; c < hot.size(); c++) {
+            Course course = hot.get(c);
+            int[] histogram = course.getRatingHistogram();
+            long count = 0;
+            long sum = 0;
+            long enrollments = enrollmentBefore[c];
+            long reviews = 0;
+            for (int stars = 1; stars <= 5; stars++) {
+                long bin = histogramsBefore[c][stars - 1];
+                for (long[][] perThread : expected) {
+                    bin += perThread[c][stars - 1];
+                }
+                if (histogram[stars - 1] != bin) {
+                    failures.add(course.getCourseID() + " has " + histogram[stars - 1] + " " + stars
+                            + "-star ratings, expected " + bin);
+                }
+                count += bin;
+                sum += bin * stars;
+            }
+            for (long[][] perThread : expected) {
+                enrollments += perThread[c][5];
+                reviews += perThread[c][6];
+            }
+            if (course.getRatingCount() != count || course.getRatingSum() != sum
+                    || course.getRatingLog().size() != count) {
+                failures.add(course.getCourseID() + " holds " + course.getRatingCount() + " ratings summing to "
+                        + course.getRatingSum() + " (" + course.getRatingLog().size() + " logged), expected "
+                        + count + " summing to " + sum);
+            }
+            if (course.getAverageRating() != (double) sum / count) {
+                failures.add(course.getCourseID() + " average " + course.getAverageRating() + ", expected "
+                        + (double) sum / count);
+            }
+            if (course.getEnrollmentCount() != enrollments) {
+                failures.add(course.getCourseID() + " enrollment " + course.getEnrollmentCount() + ", expected "
+                        + enrollments);
+            }
+            long reviewed = course.getReviews().values().stream().mapToLong(List::size).sum();
+            if (reviewed != reviews) {
+                failures.add(course.getCourseID() + " has " + reviewed + " reviews, expected " + reviews);
+            }
+        }
+
+        // Everything fed by course events must agree with the courses themselves
+        List<Course> catalog = engine.getAllCourses();
+        CatalogStatistics statistics = engine.getCatalogStatistics();
+        long ratings = catalog.stream().mapToLong(Course::getRatingCount).sum();
+        long ratingSum = catalog.stream().mapToLong(Course::getRatingSum).sum();
+        long enrollment = catalog.stream().mapToLong(Course::getEnrollmentCount).sum();
+        int maxEnrollment = catalog.stream().mapToInt(Course::getEnrollmentCount).max().orElse(0);
+        if (statistics.getRatingCount() != ratings || Math.abs(statistics.getMeanRating() - (double) ratingSum / ratings) > 1e-9) {
+            failures.add("Statistics hold " + statistics.getRatingCount() + " ratings, expected " + ratings);
+        }
+        if (statistics.getTotalEnrollment() != enrollment || statistics.getMaxEnrollment() != maxEnrollment) {
+            failures.add("Statistics enrollment " + statistics.getTotalEnrollment() + " (max "
+                    + statistics.getMaxEnrollment() + "), expected " + enrollment + " (max " + maxEnrollment + ")");
+        }
+        List<Course> bestFirst = catalog.stream()
+                .filter(course -> course.getRatingCount() > 0)
+                .sorted(TopRatedCheck.BEST_FIRST)
+                .limit(20)
+                .collect(Collectors.toList());
+        if (!engine.topRatedCourses(20).equals(bestFirst)) {
+            failures.add("Top-rated index out of step with course ratings");
+        }
+        CatalogQuery query = CatalogQuery.all().withMinAverageRating(3.0);
+        if (engine.queryCourses(query).size() != catalog.stream().filter(query::matches).count()) {
+            failures.add("Catalog query index out of step with course ratings");
+        }
+        engine.shutdown();
+    }
+}
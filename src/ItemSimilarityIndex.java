@@ -0,0 +1,310 @@
+import java.util.*;
+
+/**
+ * Item-to-item collaborative filtering over the user x course rating matrix.
+ * The matrix is kept sparse twice over, as append-only primitive rows per course
+ * and per user, holding each rater's latest rating. Every course keeps only its
+ * top-N cosine neighbours. A new rating marks the rated course and the rater's
+ * recently co-rated courses as stale, and stale neighbour lists are rebuilt on
+ * their next read.
+ *
+ * Writers are serialized on this index; readers of rows and neighbour lists
+ * never lock unless they have to rebuild a stale list.
+ */
+public class ItemSimilarityIndex implements Course.ChangeListener {
+    public static final int DEFAULT_NEIGHBORS = 20;
+    // A rebuild only co-rates a course's most recent raters, and each rater's most
+    // recent ratings, so its cost stays bounded however popular the course gets
+    static final int MAX_RATERS_SAMPLED = 1000;
+    static final int MAX_RATINGS_PER_RATER_SAMPLED = 200;
+    // Pulls predictions backed by little similarity mass towards zero
+    private static final double SHRINKAGE = 1.0;
+    private static final double MAX_RATING = 5.0;
+
+    private final int neighborCount;
+    // Course ordinal -> (user ordinal, rating); user ordinal -> (course ordinal, rating, slot in the course row)
+    private final OrdinalTable<RatingRow> courseRows = new OrdinalTable<>();
+    private final OrdinalTable<RatingRow> userRows = new OrdinalTable<>();
+    // (course, user) -> entry index in the user row, so a re-rating never scans a row
+    private final EntryMap entries = new EntryMap();
+    // Sum of squared ratings per course ordinal
+    private double[] squaredNorms = new double[16];
+    // Scratch for neighbour rebuilds, only touched under the index monitor
+    private double[] dots = new double[16];
+    private int[] touched = new int[16];
+
+    public ItemSimilarityIndex(int neighborCount) {
+        if (neighborCount <= 0) throw new IllegalArgumentException("Neighbor count must be positive");
+        this.neighborCount = neighborCount;
+    }
+
+    // Most similar courses first
+    public static final class Neighbors {
+        private static final Neighbors NONE = new Neighbors(new int[0], new float[0]);
+
+        private final int[] courses;
+        private final float[] similarities;
+
+        private Neighbors(int[] courses, float[] similarities) {
+            this.courses = courses;
+            this.similarities = similarities;
+        }
+
+        public int size() { return courses.length; }
+        public int courseAt(int rank) { return courses[rank]; }
+        public float similarityAt(int rank) { return similarities[rank]; }
+    }
+
+    /**
+     * Append-only row with a single writer. Entries are written before the volatile
+     * size is bumped and arrays are republished before use, so a reader that reads
+     * size first sees every entry below it. A rating of 0 marks a dropped entry.
+     */
+    private static final class RatingRow {
+        private volatile int[] ids = new int[4];
+        private volatile byte[] ratings = new byte[4];
+        private volatile int[] slots = new int[4];
+        private volatile int size;
+        // Course rows only
+        private volatile Neighbors neighbors;
+        private volatile boolean neighborsStale = true;
+
+        private int append(int id, int rating, int slot) {
+            int n = size;
+            if (n == ids.length) {
+                slots = Arrays.copyOf(slots, n * 2);
+                ratings = Arrays.copyOf(ratings, n * 2);
+                ids = Arrays.copyOf(ids, n * 2);
+            }
+            ids[n] = id;
+            ratings[n] = (byte) rating;
+            slots[n] = slot;
+            size = n + 1;
+            return n;
+        }
+    }
+
+    // Open-addressing map from a (course, user) pair packed into a long to an int, without boxing
+    private static final class EntryMap {
+        private static final long EMPTY = -1L;
+        private long[] keys = newKeys(64);
+        private int[] values = new int[64];
+        private int size;
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        private static long key(int course, int user) {
+            return ((long) course << 32) | (user & 0xffffffffL);
+        }
+
+        private int slotFor(long[] table, long key) {
+            int mask = table.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (table[slot] != EMPTY && table[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private int get(int course, int user) {
+            int slot = slotFor(keys, key(course, user));
+            return keys[slot] == EMPTY ? -1 : values[slot];
+        }
+
+        private void put(int course, int user, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                long[] oldKeys = keys;
+                int[] oldValues = values;
+                keys = newKeys(oldKeys.length * 2);
+                values = new int[oldKeys.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != EMPTY) {
+                        int slot = slotFor(keys, oldKeys[i]);
+                        keys[slot] = oldKeys[i];
+                        values[slot] = oldValues[i];
+                    }
+                }
+            }
+            long key = key(course, user);
+            int slot = slotFor(keys, key);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = value;
+        }
+    }
+
+    // Indexes the latest rating of every rater of a course, replacing whatever was indexed under its ID
+    public synchronized void indexCourse(Course course) {
+        int courseOrdinal = course.getOrdinal();
+        dropCourse(courseOrdinal);
+        for (Map.Entry<Integer, Integer> rating : course.getLatestRatingsByUserOrdinal().entrySet()) {
+            applyRating(courseOrdinal, rating.getKey(), rating.getValue());
+        }
+    }
+
+    private void dropCourse(int courseOrdinal) {
+        RatingRow courseRow = courseRows.get(courseOrdinal);
+        if (courseRow == null) return;
+        for (int k = 0; k < courseRow.size; k++) {
+            if (courseRow.ratings[k] == 0) continue;
+            courseRow.ratings[k] = 0;
+            int userOrdinal = courseRow.ids[k];
+            RatingRow userRow = userRows.get(userOrdinal);
+            userRow.ratings[entries.get(courseOrdinal, userOrdinal)] = 0;
+            markCoRatedStale(userRow);
+        }
+        squaredNorms[courseOrdinal] = 0.0;
+        courseRow.neighborsStale = true;
+    }
+
+    private void applyRating(int courseOrdinal, int userOrdinal, int rating) {
+        RatingRow userRow = userRows.get(userOrdinal);
+        if (userRow == null) {
+            userRow = new RatingRow();
+            userRows.put(userOrdinal, userRow);
+        }
+        RatingRow courseRow = courseRows.get(courseOrdinal);
+        if (courseRow == null) {
+            courseRow = new RatingRow();
+            courseRows.put(courseOrdinal, courseRow);
+        }
+        if (courseOrdinal >= squaredNorms.length) {
+            squaredNorms = Arrays.copyOf(squaredNorms, Math.max(courseOrdinal + 1, squaredNorms.length * 2));
+        }
+
+        int entry = entries.get(courseOrdinal, userOrdinal);
+        if (entry >= 0) {
+            // A re-rating overwrites the previous value in both rows
+            int previous = userRow.ratings[entry];
+            userRow.ratings[entry] = (byte) rating;
+            courseRow.ratings[userRow.slots[entry]] = (byte) rating;
+            squaredNorms[courseOrdinal] += rating * rating - previous * previous;
+        } else {
+            int slot = courseRow.append(userOrdinal, rating, -1);
+            entries.put(courseOrdinal, userOrdinal, userRow.append(courseOrdinal, rating, slot));
+            squaredNorms[courseOrdinal] += rating * rating;
+        }
+        // Similarity to every course this user co-rated has moved
+        markCoRatedStale(userRow);
+    }
+
+    // Only the window a rebuild samples from each rater, which keeps a rating O(1) for heavy raters
+    private void markCoRatedStale(RatingRow userRow) {
+        for (int m = Math.max(0, userRow.size - MAX_RATINGS_PER_RATER_SAMPLED); m < userRow.size; m++) {
+            RatingRow courseRow = courseRows.get(userRow.ids[m]);
+            if (courseRow != null) {
+                courseRow.neighborsStale = true;
+            }
+        }
+    }
+
+    public Neighbors neighbors(int courseOrdinal) {
+        RatingRow row = courseRows.get(courseOrdinal);
+        if (row == null) return Neighbors.NONE;
+        Neighbors current = row.neighbors;
+        if (!row.neighborsStale && current != null) {
+            return current;
+        }
+        return rebuildNeighbors(courseOrdinal, row);
+    }
+
+    private synchronized Neighbors rebuildNeighbors(int courseOrdinal, RatingRow row) {
+        if (!row.neighborsStale && row.neighbors != null) {
+            return row.neighbors;
+        }
+        // Cleared first: writers are locked out until the rebuild is published
+        row.neighborsStale = false;
+        int courseCount = IdDictionary.COURSES.size();
+        if (dots.length < courseCount) {
+            dots = new double[Math.max(courseCount, dots.length * 2)];
+        }
+
+        int touchedCount = 0;
+        for (int k = Math.max(0, row.size - MAX_RATERS_SAMPLED); k < row.size; k++) {
+            int rating = row.ratings[k];
+            if (rating == 0) continue;
+            RatingRow userRow = userRows.get(row.ids[k]);
+            for (int m = Math.max(0, userRow.size - MAX_RATINGS_PER_RATER_SAMPLED); m < userRow.size; m++) {
+                int other = userRow.ids[m];
+                int otherRating = userRow.ratings[m];
+                if (other == courseOrdinal || otherRating == 0) continue;
+                // Ratings are at least 1, so a zero dot product means "not seen yet"
+                if (dots[other] == 0.0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = other;
+                }
+                dots[other] += rating * otherRating;
+            }
+        }
+
+        TopKSelector top = new TopKSelector(neighborCount);
+        for (int t = 0; t < touchedCount; t++) {
+            top.offer(cosine(courseOrdinal, touched[t]), touched[t]);
+        }
+        int[] courses = top.toSortedIndices();
+        float[] similarities = new float[courses.length];
+        for (int rank = 0; rank < courses.length; rank++) {
+            similarities[rank] = (float) cosine(courseOrdinal, courses[rank]);
+        }
+        for (int t = 0; t < touchedCount; t++) {
+            dots[touched[t]] = 0.0;
+        }
+
+        Neighbors rebuilt = new Neighbors(courses, similarities);
+        row.neighbors = rebuilt;
+        return rebuilt;
+    }
+
+    private double cosine(int course, int other) {
+        double norms = squaredNorms[course] * squaredNorms[other];
+        return norms > 0.0 ? dots[other] / Math.sqrt(norms) : 0.0;
+    }
+
+    /**
+     * Adds weight times the predicted affinity in [0, 1] of every course that
+     * neighbours one the user rated to that course's sum in column 0: the
+     * similarity-weighted mean of the user's own ratings, shrunk towards zero
+     * when little similarity backs it.
+     */
+    public void addAffinities(int userOrdinal, double weight, OrdinalSums into) {
+        RatingRow userRow = userRows.get(userOrdinal);
+        if (userRow == null) return;
+
+        // Column 0: similarity-weighted rating, column 1: similarity mass
+        OrdinalSums sums = new OrdinalSums(2);
+        int size = userRow.size;
+        for (int m = 0; m < size; m++) {
+            int rating = userRow.ratings[m];
+            if (rating == 0) continue;
+            Neighbors neighbors = neighbors(userRow.ids[m]);
+            for (int rank = 0; rank < neighbors.size(); rank++) {
+                double similarity = neighbors.similarityAt(rank);
+                sums.add(neighbors.courseAt(rank), 0, similarity * rating / MAX_RATING);
+                sums.add(neighbors.courseAt(rank), 1, similarity);
+            }
+        }
+
+        for (int slot = 0; slot < sums.capacity(); slot++) {
+            if (sums.ordinalAt(slot) == OrdinalSums.EMPTY) continue;
+            into.add(sums.ordinalAt(slot), 0, sums.sumAt(slot, 0) / (sums.sumAt(slot, 1) + SHRINKAGE) * weight);
+        }
+    }
+
+    @Override
+    public void onEnrollmentChanged(Course course, int previousCount) {
+    }
+
+    @Override
+    public synchronized void onRatingAdded(Course course, int userOrdinal, int rating, double previousAverage,
+                                           int previousCount) {
+        applyRating(course.getOrdinal(), userOrdinal, rating);
+    }
+}
@@ -44,6 +44,14 @@ public class Model3_2 extends Application {
     private StackPane mainContent;
     private TextArea outputArea;
     private String currentActiveButton = "";
+    private static final int SEARCH_RESULTS_SHOWN = 50;
+    private static final int ID_SUGGESTIONS_SHOWN = 5;
+    private static final int BROWSE_CARDS_SHOWN = 100;
+    private static final int TOP_RATED_SHOWN = 10;
+    private static final int SAMPLE_REVIEWS_SHOWN = 2;
+    private static final int REVIEWS_PER_PAGE = 5;
+    private static final String ANY_CATEGORY = "Any category";
+    private static final String ANY_DIFFICULTY = "Any difficulty";
 
     @Override
     public void start(Stage primaryStage) {
@@ -53,6 +61,8 @@ public class Model3_2 extends Application {
         this.engine = new RecommendationEngine();
         this.service = new CourseManagerService(engine, new Scanner(System.in));
         service.initializeSampleCourses();   // Keep this — loads course data
+        service.loadAllCourseRatings();      // Saved ratings, read once into the rating indexes
+        service.buildCoEnrollmentGraph();    // Seeds "learners also took" from saved users
         User.setEngine(engine);              // Add this — ensures User class can look up courses
 
         // Show splash screen
@@ -1679,16 +1689,26 @@ public class Model3_2 extends Application {
         coursesGrid.setPrefColumns(2);
         coursesGrid.setStyle("-fx-background-color: transparent;");
 
-        for (Course course : engine.getAllCourses()) {
-            VBox courseCard = createCourseCard(course);
-            courseCard.setStyle("-fx-background-color: rgba(0,77,64,0.3); -fx-background-radius: 15;");
-            coursesGrid.getChildren().add(courseCard);
-        }
+        TextField searchField = createStyledTextField("Search courses by title, topic or provider",
+                "Matches as you type; leave empty to browse everything");
+        ComboBox<String> categoryFilter = createFilterBox(ANY_CATEGORY, CourseCategory.values());
+        ComboBox<String> difficultyFilter = createFilterBox(ANY_DIFFICULTY, CourseDifficulty.values());
+        Label matchesLabel = new Label();
+        matchesLabel.setStyle("-fx-font-size: 14px; -fx-text-fill: #80cbc4;");
+        Runnable refresh = () -> showCourseCards(coursesGrid, matchesLabel, searchField.getText(),
+                selectedFilter(categoryFilter, difficultyFilter));
+        searchField.textProperty().addListener((obs, oldText, newText) -> refresh.run());
+        categoryFilter.setOnAction(e -> refresh.run());
+        difficultyFilter.setOnAction(e -> refresh.run());
+        refresh.run();
+
+        HBox filterBar = new HBox(10, categoryFilter, difficultyFilter, matchesLabel);
+        filterBar.setAlignment(Pos.CENTER_LEFT);
 
         Button backBtn = createThemedButton("Back", "#004d40", "#00796b");
         backBtn.setOnAction(e -> enrollInCourse());
 
-        container.getChildren().addAll(coursesGrid, backBtn);
+        container.getChildren().addAll(searchField, filterBar, coursesGrid, backBtn);
         rootContainer.getChildren().add(container);
 
         ScrollPane scrollPane = new ScrollPane(rootContainer);
@@ -1700,6 +1720,66 @@ public class Model3_2 extends Application {
         rootLayout.setPadding(new Insets(0));
     }
 
+    private static ComboBox<String> createFilterBox(String anyLabel, Enum<?>[] values) {
+        ComboBox<String> box = new ComboBox<>();
+        box.getItems().add(anyLabel);
+        for (Enum<?> value : values) {
+            box.getItems().add(value.name());
+        }
+        box.setValue(anyLabel);
+        return box;
+    }
+
+    private static CatalogQuery selectedFilter(ComboBox<String> categoryFilter, ComboBox<String> difficultyFilter) {
+        CatalogQuery filter = CatalogQuery.all();
+        if (!ANY_CATEGORY.equals(categoryFilter.getValue())) {
+            filter = filter.withCategories(CourseCategory.valueOf(categoryFilter.getValue()));
+        }
+        if (!ANY_DIFFICULTY.equals(difficultyFilter.getValue())) {
+            filter = filter.withDifficulties(CourseDifficulty.valueOf(difficultyFilter.getValue()));
+        }
+        return filter;
+    }
+
+    // Browsing reads one page from the bitmap-indexed query; searching filters the ranked hits
+    private void showCourseCards(TilePane coursesGrid, Label matchesLabel, String searchText, CatalogQuery filter) {
+        List<Course> courses;
+        if (searchText.trim().isEmpty()) {
+            int total = engine.getFacets(filter).total();
+            courses = engine.queryCourses(filter, 0, BROWSE_CARDS_SHOWN);
+            matchesLabel.setText(total > courses.size()
+                    ? "Showing " + courses.size() + " of " + total + " courses"
+                    : total + " courses");
+        } else {
+            courses = engine.searchCourses(asTypedQuery(searchText), SEARCH_RESULTS_SHOWN).stream()
+                    .filter(filter::matches)
+                    .collect(Collectors.toList());
+            matchesLabel.setText(courses.size() + " matches");
+        }
+        coursesGrid.getChildren().clear();
+        for (Course course : courses) {
+            VBox courseCard = createCourseCard(course);
+            courseCard.setStyle("-fx-background-color: rgba(0,77,64,0.3); -fx-background-radius: 15;");
+            coursesGrid.getChildren().add(courseCard);
+        }
+    }
+
+    // Each suggestion fills the ID field when clicked
+    private void showCourseSuggestions(VBox suggestionsBox, TextField courseIdField, List<Course> courses) {
+        suggestionsBox.getChildren().clear();
+        for (Course match : courses) {
+            Hyperlink suggestion = new Hyperlink(match.getCourseID() + " - " + match.getTitle());
+            suggestion.setStyle("-fx-text-fill: #80cbc4; -fx-font-size: 14px;");
+            suggestion.setOnAction(event -> courseIdField.setText(match.getCourseID()));
+            suggestionsBox.getChildren().add(suggestion);
+        }
+    }
+
+    // While the user is still typing, the last word is treated as the start of a word
+    private static String asTypedQuery(String text) {
+        return text.endsWith(" ") || text.endsWith("*") ? text : text + "*";
+    }
+
     private void showCourseIdInput() {
         currentActiveButton = "enroll";
         initializeUserSidebar();
@@ -1732,6 +1812,19 @@ public class Model3_2 extends Application {
         Label errorLabel = new Label();
         errorLabel.setStyle("-fx-text-fill: #e74c3c; -fx-font-size: 14px;");
 
+        // Courses matching what has been typed so far, for users who do not know the exact ID
+        VBox suggestionsBox = new VBox(5);
+        suggestionsBox.setAlignment(Pos.CENTER_LEFT);
+        courseIdField.textProperty().addListener((obs, oldText, newText) -> {
+            String typed = newText.trim();
+            if (typed.isEmpty() || engine.getCourseById(typed) != null) {
+                suggestionsBox.getChildren().clear();
+                return;
+            }
+            showCourseSuggestions(suggestionsBox, courseIdField,
+                    engine.searchCourses(asTypedQuery(newText), ID_SUGGESTIONS_SHOWN));
+        });
+
         Button enrollBtn = createThemedButton("Enroll", "#00796b", "#004d40");
         enrollBtn.setOnAction(e -> {
             String courseId = courseIdField.getText().trim();
@@ -1742,7 +1835,10 @@ public class Model3_2 extends Application {
 
             Course course = engine.getCourseById(courseId); // Ensure this method exists in your engine
             if (course == null) {
-                errorLabel.setText("Invalid Course ID. Please try again.");
+                List<Course> didYouMean = engine.suggestCourses(courseId, ID_SUGGESTIONS_SHOWN);
+                errorLabel.setText(didYouMean.isEmpty() ? "Invalid Course ID. Please try again."
+                        : "Invalid Course ID. Did you mean one of these?");
+                showCourseSuggestions(suggestionsBox, courseIdField, didYouMean);
                 return;
             }
 
@@ -1763,7 +1859,7 @@ public class Model3_2 extends Application {
         buttonBox.setAlignment(Pos.CENTER);
         buttonBox.getChildren().addAll(enrollBtn, backBtn);
 
-        container.getChildren().addAll(titleLabel, courseIdField, errorLabel, buttonBox);
+        container.getChildren().addAll(titleLabel, courseIdField, suggestionsBox, errorLabel, buttonBox);
         rootContainer.getChildren().add(container);
 
         mainContent.getChildren().setAll(rootContainer);
@@ -2781,26 +2877,13 @@ public class Model3_2 extends Application {
                 "-fx-effect: dropshadow(gaussian, rgba(0,255,200,0.3), 10, 0, 0, 0);"
         );
 
-        List<Course> allCourses = engine.getAllCourses();
-
-        // Load ratings for all courses
-        for (Course course : allCourses) {
-            service.loadCourseRatings(course);
-        }
-
-        // Filter to courses with at least one rating
-        List<Course> ratedCourses = allCourses.stream()
-                .filter(c -> c.getRatingCount() > 0)
-                .collect(Collectors.toList());
+        List<Course> ratedCourses = engine.topRatedCourses(TOP_RATED_SHOWN);
 
         if (ratedCourses.isEmpty()) {
             Label noCoursesLabel = new Label("No courses have been rated yet.");
             noCoursesLabel.setStyle("-fx-font-size: 18px; -fx-text-fill: #80cbc4;");
             container.getChildren().addAll(titleLabel, noCoursesLabel);
         } else {
-            // Sort by average rating (highest first)
-            ratedCourses.sort(Comparator.comparing(Course::getAverageRating).reversed());
-
             // Display top courses
             TilePane coursesGrid = new TilePane();
             coursesGrid.setHgap(20);
@@ -2808,8 +2891,7 @@ public class Model3_2 extends Application {
             coursesGrid.setPrefColumns(2);
             coursesGrid.setStyle("-fx-background-color: transparent;");
 
-            int limit = Math.min(10, ratedCourses.size());
-            for (int i = 0; i < limit; i++) {
+            for (int i = 0; i < ratedCourses.size(); i++) {
                 Course course = ratedCourses.get(i);
 
                 VBox courseCard = new VBox(10);
@@ -2834,17 +2916,32 @@ public class Model3_2 extends Application {
                 difficultyLabel.setStyle("-fx-font-size: 14px; -fx-text-fill: #b2dfdb;");
 
                 // Display sample reviews if available
-                List<String> reviews = course.getTopReviews(2);
+                List<String> reviews = course.getTopReviews(SAMPLE_REVIEWS_SHOWN);
                 VBox reviewsBox = new VBox(5);
                 if (!reviews.isEmpty()) {
                     Label reviewsLabel = new Label("Sample Reviews:");
                     reviewsLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: #4db6ac;");
                     reviewsBox.getChildren().add(reviewsLabel);
 
+                    VBox reviewList = new VBox(5);
                     for (String review : reviews) {
-                        Label reviewLabel = new Label("• \"" + review + "\"");
-                        reviewLabel.setStyle("-fx-text-fill: white; -fx-wrap-text: true;");
-                        reviewsBox.getChildren().add(reviewLabel);
+                        reviewList.getChildren().add(createReviewLabel(review));
+                    }
+                    reviewsBox.getChildren().add(reviewList);
+
+                    // Further reviews arrive a page at a time, best first
+                    if (course.getReviewCount() > reviews.size()) {
+                        Button moreBtn = createThemedButton("More reviews", "#004d40", "#00796b");
+                        moreBtn.setOnAction(e -> {
+                            int shown = reviewList.getChildren().size();
+                            for (ReviewRanking.Review review : course.getReviewPage(shown, REVIEWS_PER_PAGE)) {
+                                reviewList.getChildren().add(createReviewLabel(review.getText()));
+                            }
+                            if (reviewList.getChildren().size() >= course.getReviewCount()) {
+                                reviewsBox.getChildren().remove(moreBtn);
+                            }
+                        });
+                        reviewsBox.getChildren().add(moreBtn);
                     }
                 }
 
@@ -2870,6 +2967,12 @@ public class Model3_2 extends Application {
         rootLayout.setPadding(new Insets(0));
     }
 
+    private Label createReviewLabel(String review) {
+        Label reviewLabel = new Label("• \"" + review + "\"");
+        reviewLabel.setStyle("-fx-text-fill: white; -fx-wrap-text: true;");
+        return reviewLabel;
+    }
+
     private void logout() {
         if (currentUser != null) {
             currentUser.saveToFile();
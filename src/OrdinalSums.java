@@ -0,0 +1,93 @@
+import java.util.*;
+
+/**
+ * Per-request accumulator from an ordinal (see IdDictionary) to a few running
+ * double sums, kept in an open-addressing table. Requests that touch a handful
+ * of candidates sum into it instead of a HashMap of boxed values, and it never
+ * allocates per catalog course the way a dense array would. Not thread-safe.
+ *
+ * Iterate slots 0 to capacity() - 1, skipping those whose ordinalAt is EMPTY.
+ */
+public final class OrdinalSums {
+    public static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Sums per ordinal
+    private final int width;
+    private int[] ordinals = newOrdinals(INITIAL_CAPACITY);
+    // Slot s holds its sums at [s * width, (s + 1) * width)
+    private double[] sums;
+    private int size;
+
+    public OrdinalSums(int width) {
+        if (width <= 0) throw new IllegalArgumentException("Width must be positive");
+        this.width = width;
+        this.sums = new double[INITIAL_CAPACITY * width];
+    }
+
+    private static int[] newOrdinals(int capacity) {
+        int[] ordinals = new int[capacity];
+        Arrays.fill(ordinals, EMPTY);
+        return ordinals;
+    }
+
+    private static int slotFor(int[] table, int ordinal) {
+        int mask = table.length - 1;
+        int slot = (ordinal * 0x9E3779B9) & mask;
+        while (table[slot] != EMPTY && table[slot] != ordinal) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    public void add(int ordinal, int column, double value) {
+        if (ordinal < 0) throw new IllegalArgumentException("Ordinal cannot be negative");
+        int slot = slotFor(ordinals, ordinal);
+        if (ordinals[slot] == EMPTY) {
+            // Kept at most half full so probe runs stay short
+            if ((size + 1) * 2 > ordinals.length) {
+                grow();
+                slot = slotFor(ordinals, ordinal);
+            }
+            ordinals[slot] = ordinal;
+            size++;
+        }
+        sums[slot * width + column] += value;
+    }
+
+    // 0 for an ordinal never added
+    public double get(int ordinal, int column) {
+        if (ordinal < 0) return 0.0;
+        int slot = slotFor(ordinals, ordinal);
+        return ordinals[slot] == EMPTY ? 0.0 : sums[slot * width + column];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return ordinals.length;
+    }
+
+    public int ordinalAt(int slot) {
+        return ordinals[slot];
+    }
+
+    public double sumAt(int slot, int column) {
+        return sums[slot * width + column];
+    }
+
+    private void grow() {
+        int[] oldOrdinals = ordinals;
+        double[] oldSums = sums;
+        ordinals = newOrdinals(oldOrdinals.length * 2);
+        sums = new double[ordinals.length * width];
+        for (int i = 0; i < oldOrdinals.length; i++) {
+            if (oldOrdinals[i] == EMPTY) continue;
+            int slot = slotFor(ordinals, oldOrdinals[i]);
+            ordinals[slot] = oldOrdinals[i];
+            System.arraycopy(oldSums, i * width, sums, slot * width, width);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.*;
+
+/**
+ * Map from a dense ordinal (see IdDictionary) to a value, stored as a plain
+ * array. Reads are lock-free; writes are serialized and grow the array by
+ * copying, so a reader sees either the old or the new array.
+ */
+public final class OrdinalTable<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile Object[] slots = new Object[INITIAL_CAPACITY];
+    private int count;
+
+    @SuppressWarnings("unchecked")
+    public T get(int ordinal) {
+        Object[] current = slots;
+        return ordinal >= 0 && ordinal < current.length ? (T) current[ordinal] : null;
+    }
+
+    // Returns the previous value, or null
+    @SuppressWarnings("unchecked")
+    public synchronized T put(int ordinal, T value) {
+        if (ordinal < 0) throw new IllegalArgumentException("Ordinal cannot be negative");
+        if (value == null) throw new IllegalArgumentException("Value cannot be null");
+        Object[] current = slots;
+        if (ordinal >= current.length) {
+            current = Arrays.copyOf(current, Math.max(ordinal + 1, current.length * 2));
+        }
+        T previous = (T) current[ordinal];
+        current[ordinal] = value;
+        // Re-publishing the array also publishes the slot write to lock-free readers
+        slots = current;
+        if (previous == null) {
+            count++;
+        }
+        return previous;
+    }
+
+    // Stores value only if the slot is empty; returns the value now held
+    public synchronized T putIfAbsent(int ordinal, T value) {
+        T current = get(ordinal);
+        if (current != null) {
+            return current;
+        }
+        put(ordinal, value);
+        return value;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<T> values() {
+        Object[] current = slots;
+        List<T> values = new ArrayList<>();
+        for (Object value : current) {
+            if (value != null) {
+                values.add((T) value);
+            }
+        }
+        return values;
+    }
+}
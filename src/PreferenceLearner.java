@@ -0,0 +1,48 @@
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Turns a user's learning events into preference evidence for the category of
+ * the course involved. Positive signals for commitment (enrolling, progressing,
+ * completing, rating well), negative ones for backing out or dismissing.
+ */
+public class PreferenceLearner implements User.ChangeListener {
+    static final double ENROLL_SIGNAL = 0.3;
+    static final double PROGRESS_SIGNAL = 0.05;
+    static final double COMPLETE_SIGNAL = 0.5;
+    static final double UNENROLL_SIGNAL = -0.2;
+    static final double DISMISS_SIGNAL = -0.3;
+    // Per star away from a neutral 3
+    static final double RATING_SIGNAL_PER_STAR = 0.15;
+
+    private final Function<String, Course> courseLookup;
+    private final LongSupplier today;
+
+    public PreferenceLearner(Function<String, Course> courseLookup, LongSupplier today) {
+        this.courseLookup = courseLookup;
+        this.today = today;
+    }
+
+    @Override
+    public void onUserChanged(User user, User.ChangeType type, String courseId, int value) {
+        double signal = signalFor(type, value);
+        if (signal == 0.0 || courseId == null) return;
+        Course course = courseLookup.apply(courseId);
+        // Events for courses outside the catalog carry no category to learn about
+        if (course != null) {
+            user.getPreferenceWeights().record(course.getCategory(), signal, today.getAsLong());
+        }
+    }
+
+    static double signalFor(User.ChangeType type, int value) {
+        switch (type) {
+            case ENROLLED: return ENROLL_SIGNAL;
+            case PROGRESS_UPDATED: return PROGRESS_SIGNAL;
+            case COMPLETED: return COMPLETE_SIGNAL;
+            case UNENROLLED: return UNENROLL_SIGNAL;
+            case DISMISSED: return DISMISS_SIGNAL;
+            case RATED: return (value - 3) * RATING_SIGNAL_PER_STAR;
+            default: return 0.0;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One user's interest weight per course category, learned online from their
+ * learning events. Evidence decays exponentially with a fixed half-life and is
+ * stored with forward decay: a signal recorded on day t is scaled by
+ * e^(rate * (t - landmark)), so recording is a single lock-free add and reading
+ * scales the accumulator back down to the requested day.
+ *
+ * A fresh instance takes its landmark from the first day it records, so it only
+ * ever sees days from the caller's clock (the engine's), never the wall clock.
+ */
+public final class PreferenceWeights implements Serializable {
+    private static final long serialVersionUID = 1L;
+    public static final double BASE_WEIGHT = 1.0;
+    public static final double MIN_WEIGHT = 0.1;
+    public static final double MAX_WEIGHT = 3.0;
+    public static final double HALF_LIFE_DAYS = 90.0;
+    private static final double DECAY_RATE = Math.log(2) / HALF_LIFE_DAYS;
+
+    private static final long NO_LANDMARK = Long.MIN_VALUE;
+
+    private final AtomicLong landmarkDay;
+    // Forward-decayed evidence per CourseCategory.ordinal(), stored as double bits
+    private final AtomicLongArray evidence = new AtomicLongArray(CourseCategory.values().length);
+
+    public PreferenceWeights() {
+        this.landmarkDay = new AtomicLong(NO_LANDMARK);
+    }
+
+    public PreferenceWeights(long landmarkDay) {
+        this.landmarkDay = new AtomicLong(landmarkDay);
+    }
+
+    public void record(CourseCategory category, double signal, long day) {
+        landmarkDay.compareAndSet(NO_LANDMARK, day);
+        double scaled = signal * Math.exp(DECAY_RATE * (day - landmarkDay.get()));
+        int slot = category.ordinal();
+        long current;
+        do {
+            current = evidence.get(slot);
+        } while (!evidence.compareAndSet(slot, current,
+                Double.doubleToRawLongBits(Double.longBitsToDouble(current) + scaled)));
+    }
+
+    // Decayed evidence as seen on the given day; positive means drawn to the category
+    public double evidence(CourseCategory category, long day) {
+        long landmark = landmarkDay.get();
+        // Nothing recorded yet, and the landmark is set before any evidence is added
+        if (landmark == NO_LANDMARK) return 0.0;
+        return Double.longBitsToDouble(evidence.get(category.ordinal())) * Math.exp(-DECAY_RATE * (day - landmark));
+    }
+
+    public double weight(CourseCategory category, long day) {
+        return Math.max(MIN_WEIGHT, Math.min(MAX_WEIGHT, BASE_WEIGHT + evidence(category, day)));
+    }
+
+    // Persistence: evidence as of the landmark day is independent of the decay rate
+    public boolean hasLandmark() {
+        return landmarkDay.get() != NO_LANDMARK;
+    }
+
+    public long getLandmarkDay() {
+        long landmark = landmarkDay.get();
+        if (landmark == NO_LANDMARK) throw new IllegalStateException("Nothing recorded yet");
+        return landmark;
+    }
+
+    public double evidenceAtLandmark(CourseCategory category) {
+        return Double.longBitsToDouble(evidence.get(category.ordinal()));
+    }
+
+    void restoreEvidenceAtLandmark(CourseCategory category, double value) {
+        evidence.set(category.ordinal(), Double.doubleToRawLongBits(value));
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Filtered catalog queries, their pages and their facet counts must match
+ * filtering the catalog course by course, including after ratings change.
+ */
+final class QueryCheck implements EngineCheck {
+    private static final int CATALOG_SIZE = 3_000;
+    private static final int EXTRA_RATINGS = 3_000;
+
+    @Override
+    public String name() {
+        return "query";
+    }
+
+    @Override
+    public void run(List<String> failures) {
+        RecommendationEngine engine = EngineFixtures.buildEngine(CATALOG_SIZE);
+        List<CatalogQuery> queries = Arrays.asList(
+                CatalogQuery.all(),
+                CatalogQuery.all().withCategories(CourseCategory.PROGRAMMING, CourseCategory.DATA_SCIENCE)
+                        .withDifficulties(CourseDifficulty.BEGINNER)
+                        .withMinAverageRating(3.5),
+                CatalogQuery.all().withProviders("Provider7", "Provider8").withRatingCountBetween(1, 3),
+                CatalogQuery.all().withMinAverageRating(4.5));
+        compare(engine, queries, "before extra ratings", failures);
+        Random random = new Random(EngineFixtures.SEED);
+        List<Course> catalog = engine.getAllCourses();
+        for (int i = 0; i < EXTRA_RATINGS; i++) {
+            catalog.get(random.nextInt(catalog.size())).addRating("query" + random.nextInt(100), 1 + random.nextInt(5));
+        }
+        compare(engine, queries, "after extra ratings", failures);
+        engine.shutdown();
+    }
+
+    private static void compare(RecommendationEngine engine, List<CatalogQuery> queries, String when,
+                                List<String> failures) {
+        List<Course> catalog = engine.getAllCourses();
+        for (int q = 0; q < queries.size(); q++) {
+            CatalogQuery query = queries.get(q);
+            List<Course> expected = catalog.stream().filter(query::matches).collect(Collectors.toList());
+            if (!engine.queryCourses(query).equals(expected)) {
+                failures.add("Query " + q + " matches differ " + when);
+            }
+            List<Course> page = expected.subList(Math.min(5, expected.size()), Math.min(15, expected.size()));
+            if (!engine.queryCourses(query, 5, 10).equals(page)) {
+                failures.add("Query " + q + " page differs " + when);
+            }
+
+            // Each facet applies every filter but its own
+            CatalogQueryIndex.Facets facets = engine.getFacets(query);
+            if (facets.total() != expected.size()) {
+                failures.add("Query " + q + " facet total " + facets.total() + ", expected " + expected.size());
+            }
+            CatalogQuery anyCategory = query.withCategories();
+            for (CourseCategory category : CourseCategory.values()) {
+                long count = catalog.stream()
+                        .filter(course -> course.getCategory() == category && anyCategory.matches(course))
+                        .count();
+                if (facets.categories().get(category) != count) {
+                    failures.add("Query " + q + " facet " + category + " " + facets.categories().get(category)
+                            + ", expected " + count + " " + when);
+                }
+            }
+            CatalogQuery anyRating = query.withMinAverageRating(0);
+            for (int stars = 0; stars <= 5; stars++) {
+                int minimum = stars;
+                long count = catalog.stream()
+                        .filter(course -> course.getAverageRating() >= minimum && anyRating.matches(course))
+                        .count();
+                if (facets.atLeastStars(stars) != count) {
+                    failures.add("Query " + q + " facet " + stars + "+ stars " + facets.atLeastStars(stars)
+                            + ", expected " + count + " " + when);
+                }
+            }
+        }
+    }
+}
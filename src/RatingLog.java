@@ -0,0 +1,125 @@
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Append-only log of one course's ratings, packed one long per rating: epoch
+ * seconds in the high 32 bits (unsigned, good until 2106), the rater's user
+ * ordinal (IdDictionary.USERS) in the next 29 and the stars in the low 3. An
+ * open-addressing table maps each rater to their latest entry, so per-user
+ * lookups never scan the log.
+ *
+ * Entries are never rewritten and growth copies into a new array, so a View
+ * shares the array with the log and stays valid while later ratings are
+ * appended past its end. Every method is synchronized; views are read without
+ * the lock.
+ */
+public final class RatingLog implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_USER_ORDINAL = (1 << 29) - 1;
+    private static final long MAX_EPOCH_SECONDS = 0xFFFFFFFFL;
+    private static final int EMPTY = -1;
+
+    private long[] entries = new long[4];
+    private int size;
+    // Rater ordinal to the index of their latest entry; unused keys hold EMPTY
+    private int[] raterKeys = newKeys(8);
+    private int[] latestEntries = new int[8];
+    private int raterCount;
+
+    /**
+     * Ratings as of the moment the view was taken, oldest first. Index i runs
+     * from 0 to size() - 1.
+     */
+    public static final class View {
+        private final long[] entries;
+        private final int size;
+
+        private View(long[] entries, int size) {
+            this.entries = entries;
+            this.size = size;
+        }
+
+        public int size() { return size; }
+        public int userOrdinal(int i) { return (int) (entry(i) >>> 3) & MAX_USER_ORDINAL; }
+        public int stars(int i) { return (int) entry(i) & 7; }
+        public long epochSeconds(int i) { return entry(i) >>> 32; }
+
+        private long entry(int i) {
+            if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Rating " + i + " of " + size);
+            return entries[i];
+        }
+    }
+
+    private static int[] newKeys(int capacity) {
+        int[] keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    public synchronized void append(int userOrdinal, int stars, long epochSeconds) {
+        if (userOrdinal < 0 || userOrdinal > MAX_USER_ORDINAL) {
+            throw new IllegalArgumentException("User ordinal out of range: " + userOrdinal);
+        }
+        if (stars < 1 || stars > 5) throw new IllegalArgumentException("Rating must be between 1 and 5");
+        if (epochSeconds < 0 || epochSeconds > MAX_EPOCH_SECONDS) {
+            throw new IllegalArgumentException("Rating time out of range: " + epochSeconds);
+        }
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+        }
+        entries[size] = (epochSeconds << 32) | ((long) userOrdinal << 3) | stars;
+        int slot = slotFor(raterKeys, userOrdinal);
+        if (raterKeys[slot] == EMPTY) {
+            raterKeys[slot] = userOrdinal;
+            raterCount++;
+        }
+        latestEntries[slot] = size;
+        size++;
+        // Kept at most half full so probe runs stay short
+        if (raterCount * 2 > raterKeys.length) {
+            growRaters();
+        }
+    }
+
+    // The rater's most recent stars, or 0 if they have not rated
+    public synchronized int latestStars(int userOrdinal) {
+        if (userOrdinal < 0) return 0;
+        int slot = slotFor(raterKeys, userOrdinal);
+        return raterKeys[slot] == EMPTY ? 0 : (int) entries[latestEntries[slot]] & 7;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Distinct users who have rated
+    public synchronized int raterCount() {
+        return raterCount;
+    }
+
+    public synchronized View view() {
+        return new View(entries, size);
+    }
+
+    private static int slotFor(int[] keys, int userOrdinal) {
+        int mask = keys.length - 1;
+        int slot = (userOrdinal * 0x9E3779B9) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != userOrdinal) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growRaters() {
+        int[] keys = newKeys(raterKeys.length * 2);
+        int[] latest = new int[keys.length];
+        for (int i = 0; i < raterKeys.length; i++) {
+            if (raterKeys[i] == EMPTY) continue;
+            int slot = slotFor(keys, raterKeys[i]);
+            keys[slot] = raterKeys[i];
+            latest[slot] = latestEntries[i];
+        }
+        raterKeys = keys;
+        latestEntries = latest;
+    }
+}
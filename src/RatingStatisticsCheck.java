@@ -0,0 +1,82 @@
+import java.util.*;
+
+/**
+ * A course's rating statistics must match the same figures computed from the
+ * ratings it was given, and its rating log must hold them in arrival order.
+ */
+final class RatingStatisticsCheck implements EngineCheck {
+    private static final int[] RATING_COUNTS = {1, 2, 7, 1_000, 100_000};
+
+    @Override
+    public String name() {
+        return "ratings";
+    }
+
+    @Override
+    public void run(List<String> failures) {
+        for (int size : RATING_COUNTS) {
+            Random random = new Random(EngineFixtures.SEED + size);
+            String[] raters = EngineFixtures.raters("ratings" + size, size);
+            Course course = new Course("RATED" + size, "Rated Course", CourseCategory.DESIGN,
+                    CourseDifficulty.BEGINNER, "provider", "A course that collects many ratings");
+            int[] given = new int[size];
+            for (int i = 0; i < size; i++) {
+                given[i] = 1 + random.nextInt(5);
+                course.addRating(raters[i], given[i]);
+            }
+            check(course, given, failures);
+        }
+    }
+
+    private static void check(Course course, int[] given, List<String> failures) {
+        String id = course.getCourseID();
+        int[] sorted = given.clone();
+        Arrays.sort(sorted);
+        int count = sorted.length;
+        long sum = 0;
+        for (int stars : sorted) {
+            sum += stars;
+        }
+        double mean = (double) sum / count;
+        double squares = 0;
+        for (int stars : sorted) {
+            squares += (stars - mean) * (stars - mean);
+        }
+
+        if (course.getRatingCount() != count || course.getRatingSum() != sum) {
+            failures.add(id + " holds " + course.getRatingCount() + " ratings summing to " + course.getRatingSum());
+        }
+        double median = (sorted[(count - 1) / 2] + sorted[count / 2]) / 2.0;
+        if (course.getMedianRating() != median) {
+            failures.add(id + " median " + course.getMedianRating() + ", expected " + median);
+        }
+        for (int percentile : new int[]{0, 10, 50, 90, 100}) {
+            int expected = sorted[Math.max(0, (int) Math.ceil(percentile / 100.0 * count) - 1)];
+            if (course.getRatingPercentile(percentile) != expected) {
+                failures.add(id + " percentile " + percentile + " is " + course.getRatingPercentile(percentile)
+                        + ", expected " + expected);
+            }
+        }
+        if (Math.abs(course.getRatingStandardDeviation() - Math.sqrt(squares / count)) > 1e-9) {
+            failures.add(id + " standard deviation " + course.getRatingStandardDeviation() + ", expected "
+                    + Math.sqrt(squares / count));
+        }
+        double bayesian = (TopRatedIndex.PRIOR_MEAN * TopRatedIndex.PRIOR_WEIGHT + sum)
+                / (TopRatedIndex.PRIOR_WEIGHT + count);
+        if (Math.abs(course.getBayesianRating(TopRatedIndex.PRIOR_MEAN, TopRatedIndex.PRIOR_WEIGHT) - bayesian) > 1e-9) {
+            failures.add(id + " Bayesian rating differs from " + bayesian);
+        }
+
+        RatingLog.View log = course.getRatingLog();
+        if (log.size() != given.length) {
+            failures.add(id + " logged " + log.size() + " ratings, expected " + given.length);
+            return;
+        }
+        for (int i = 0; i < given.length; i++) {
+            if (log.stars(i) != given[i]) {
+                failures.add(id + " log entry " + i + " has " + log.stars(i) + " stars, expected " + given[i]);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+import java.time.Clock;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-user cache of recommendation results with a TTL and an LRU size cap.
+ * Entries are treated as stale once the user has a learning event or a course
+ * in one of the user's interest categories changes.
+ *
+ * Invalidation never takes the cache lock: it only bumps an atomic generation
+ * for the user or the category, and a lookup drops an entry whose stamp no
+ * longer matches.
+ */
+public class RecommendationCache implements Course.ChangeListener, User.ChangeListener {
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000L;
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final Clock clock;
+    private long ttlMillis;
+    private int maxEntries;
+    private final LinkedHashMap<Integer, Entry> entries;
+    // Bumped whenever a course in the category changes; entries remember the values they saw
+    private final AtomicLongArray categoryGenerations = new AtomicLongArray(CourseCategory.values().length);
+    // Bumped on every user event, in pages of USER_PAGE_SIZE user ordinals (IdDictionary.USERS);
+    // pages are only ever added, so a bump never races a copy of the array it lands in
+    private static final int USER_PAGE_BITS = 10;
+    private static final int USER_PAGE_SIZE = 1 << USER_PAGE_BITS;
+    private final OrdinalTable<AtomicLongArray> userGenerations = new OrdinalTable<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public RecommendationCache() {
+        this(Clock.systemDefaultZone(), DEFAULT_TTL_MILLIS, DEFAULT_MAX_ENTRIES);
+    }
+
+    public RecommendationCache(Clock clock, long ttlMillis, int maxEntries) {
+        if (clock == null) throw new IllegalArgumentException("Clock cannot be null");
+        validateSettings(ttlMillis, maxEntries);
+        this.clock = clock;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        // Access-ordered so the eldest entry is always the least recently used
+        this.entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > RecommendationCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static void validateSettings(long ttlMillis, int maxEntries) {
+        if (ttlMillis <= 0) throw new IllegalArgumentException("TTL must be positive");
+        if (maxEntries <= 0) throw new IllegalArgumentException("Cache size must be positive");
+    }
+
+    public synchronized void configure(long ttlMillis, int maxEntries) {
+        validateSettings(ttlMillis, maxEntries);
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        Iterator<Integer> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    // Everything a cached result depended on, captured before it was computed
+    public static final class Stamp {
+        private final Set<CourseCategory> categories;
+        private final long[] generations;
+        private final long userGeneration;
+        private final int maxEnrollment;
+        private final long day;
+
+        private Stamp(Set<CourseCategory> categories, long[] generations, long userGeneration,
+                      int maxEnrollment, long day) {
+            this.categories = categories;
+            this.generations = generations;
+            this.userGeneration = userGeneration;
+            this.maxEnrollment = maxEnrollment;
+            this.day = day;
+        }
+    }
+
+    private static final class Entry {
+        private final List<Course> courses;
+        private final int k;
+        private final long createdAt;
+        private final Stamp stamp;
+
+        private Entry(List<Course> courses, int k, long createdAt, Stamp stamp) {
+            this.courses = courses;
+            this.k = k;
+            this.createdAt = createdAt;
+            this.stamp = stamp;
+        }
+
+        // A result shorter than k was exhaustive, so it also answers larger k
+        private boolean covers(int requested) {
+            return requested <= k || courses.size() < k;
+        }
+    }
+
+    // 0 for a user who never had an event
+    private long userGeneration(int userOrdinal) {
+        AtomicLongArray page = userGenerations.get(userOrdinal >>> USER_PAGE_BITS);
+        return page == null ? 0L : page.get(userOrdinal & (USER_PAGE_SIZE - 1));
+    }
+
+    public Stamp stamp(int userOrdinal, Set<CourseCategory> categories, int maxEnrollment, long day) {
+        // The user's generation is read first, so a concurrent event leaves the stamp stale, never current
+        long userGeneration = userGeneration(userOrdinal);
+        long[] generations = new long[categoryGenerations.length()];
+        for (CourseCategory category : categories) {
+            generations[category.ordinal()] = categoryGenerations.get(category.ordinal());
+        }
+        return new Stamp(EnumSet.copyOf(categories), generations, userGeneration, maxEnrollment, day);
+    }
+
+    public synchronized List<Course> get(int userOrdinal, int k, int maxEnrollment, long day) {
+        Entry entry = entries.get(userOrdinal);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (clock.millis() - entry.createdAt > ttlMillis) {
+            entries.remove(userOrdinal);
+            expirations++;
+            misses++;
+            return null;
+        }
+        if (!isCurrent(userOrdinal, entry.stamp, maxEnrollment, day)) {
+            entries.remove(userOrdinal);
+            invalidations++;
+            misses++;
+            return null;
+        }
+        if (!entry.covers(k)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(entry.courses.subList(0, Math.min(k, entry.courses.size())));
+    }
+
+    public synchronized void put(int userOrdinal, int k, List<Course> courses, Stamp stamp) {
+        // An event since the stamp was taken makes the result stale; a later one is caught by get
+        if (stamp.userGeneration != userGeneration(userOrdinal)) {
+            return;
+        }
+        entries.put(userOrdinal, new Entry(new ArrayList<>(courses), k, clock.millis(), stamp));
+    }
+
+    private boolean isCurrent(int userOrdinal, Stamp stamp, int maxEnrollment, long day) {
+        if (stamp.maxEnrollment != maxEnrollment || stamp.day != day
+                || stamp.userGeneration != userGeneration(userOrdinal)) {
+            return false;
+        }
+        for (CourseCategory category : stamp.categories) {
+            if (stamp.generations[category.ordinal()] != categoryGenerations.get(category.ordinal())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void invalidateUser(int userOrdinal) {
+        if (userOrdinal < 0) throw new IllegalArgumentException("Ordinal cannot be negative");
+        int pageIndex = userOrdinal >>> USER_PAGE_BITS;
+        AtomicLongArray page = userGenerations.get(pageIndex);
+        if (page == null) {
+            page = userGenerations.putIfAbsent(pageIndex, new AtomicLongArray(USER_PAGE_SIZE));
+        }
+        page.incrementAndGet(userOrdinal & (USER_PAGE_SIZE - 1));
+    }
+
+    public void invalidateCategory(CourseCategory category) {
+        categoryGenerations.incrementAndGet(category.ordinal());
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public void onUserChanged(User user, User.ChangeType type, String courseId, int value) {
+        invalidateUser(user.getOrdinal());
+    }
+
+    @Override
+    public void onEnrollmentChanged(Course course, int previousCount) {
+        invalidateCategory(course.getCategory());
+    }
+
+    @Override
+    public void onRatingAdded(Course course, int userOrdinal, int rating, double previousAverage, int previousCount) {
+        invalidateCategory(course.getCategory());
+    }
+
+    // Counters for sizing the cache
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getExpirations() { return expirations; }
+    public synchronized long getInvalidations() { return invalidations; }
+    public synchronized int size() { return entries.size(); }
+    public synchronized long getTtlMillis() { return ttlMillis; }
+    public synchronized int getMaxEntries() { return maxEntries; }
+}
@@ -1,30 +1,68 @@
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.*;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.stream.Collectors;
-import java.time.LocalDateTime;
-import java.util.*;
-import java.util.concurrent.*;
-import java.time.temporal.ChronoUnit;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+// LIVE reads every input from the Course objects; PRECOMPUTED reads the packed static score column;
+// COLLABORATIVE adds item-item collaborative filtering and co-enrollment candidates on top of PRECOMPUTED
+enum ScoringMode {
+    LIVE, PRECOMPUTED, COLLABORATIVE
+}
 
 public class RecommendationEngine {
-    private List<Course> courseDatabase;
-    private Map<String, User> userProfiles;
-    private Map<String, Map<String, Double>> userPreferenceScores;
+    // Copy-on-write catalog: readers take the current snapshot without locking
+    private volatile CatalogSnapshot catalog = CatalogSnapshot.empty();
+    // Primary-key index from course ordinal (IdDictionary.COURSES) to catalog position, -1 when absent.
+    // Written only under the write lock after each publish; replaced wholesale on growth
+    private volatile int[] positionsByOrdinal = new int[0];
+    private final Object catalogWriteLock = new Object();
+    // Keyed by user ordinal (IdDictionary.USERS)
+    private final OrdinalTable<User> userProfiles = new OrdinalTable<>();
+    // Learns each registered user's interest weights from their events
+    private final PreferenceLearner preferenceLearner = new PreferenceLearner(this::getCourseById, this::today);
     private ExecutorService executorService;
+    // Read once per request; inject a fixed clock for reproducible scores
+    private final Clock clock;
+    private final CatalogStatistics catalogStatistics = new CatalogStatistics();
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+    private final RecommendationCache recommendationCache;
+    private final StaticScoreColumn staticScores;
+    private final ItemSimilarityIndex itemSimilarity = new ItemSimilarityIndex(ItemSimilarityIndex.DEFAULT_NEIGHBORS);
+    private final CoEnrollmentGraph coEnrollment = new CoEnrollmentGraph();
+    private final ContentSimilarityIndex contentSimilarity =
+            new ContentSimilarityIndex(ContentSimilarityIndex.DEFAULT_NEIGHBORS);
+    private final CourseSearchIndex searchIndex = new CourseSearchIndex();
+    private final FuzzyCourseLookup fuzzyLookup = new FuzzyCourseLookup();
+    private final CatalogQueryIndex queryIndex;
+    private final TopRatedIndex topRated = new TopRatedIndex();
     private static final int MAX_RECOMMENDATIONS = 10;
+    // Users in flight per worker thread during a batch, bounding buffered results
+    private static final int BATCH_TASKS_PER_THREAD = 4;
     private static final double RATING_WEIGHT = 0.4;
     private static final double RECENCY_WEIGHT = 0.3;
     private static final double ENROLLMENT_WEIGHT = 0.3;
     private static final double INTEREST_BONUS_WEIGHT = 0.2;
+    // Static scores are kept to 32 fractional bits, far coarser than a double's rounding error
+    private static final int SCORE_GRID_BITS = 32;
+    private static final double COLLABORATIVE_WEIGHT = 0.3;
+    private static final double CO_ENROLLMENT_WEIGHT = 0.2;
+    // "Also taken" courses considered per course the user has taken
+    private static final int CO_ENROLLMENT_CANDIDATES = 20;
 
     public RecommendationEngine() {
-        courseDatabase = new ArrayList<>();
-        userProfiles = new HashMap<>();
-        userPreferenceScores = new HashMap<>();
+        this(Clock.systemDefaultZone());
+    }
+
+    public RecommendationEngine(Clock clock) {
+        if (clock == null) throw new IllegalArgumentException("Clock cannot be null");
+        this.clock = clock;
+        recommendationCache = new RecommendationCache(clock, RecommendationCache.DEFAULT_TTL_MILLIS,
+                RecommendationCache.DEFAULT_MAX_ENTRIES);
+        staticScores = new StaticScoreColumn(this::positionOf, today());
+        queryIndex = new CatalogQueryIndex(this::positionOf);
         executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
     }
 
@@ -34,83 +72,628 @@ public class RecommendationEngine {
 
     public void addCourse(Course course) {
         if (course == null) throw new IllegalArgumentException("Course cannot be null");
-        courseDatabase.add(course);
+        synchronized (catalogWriteLock) {
+            CatalogSnapshot current = catalog;
+            int position = positionOf(course.getOrdinal());
+            int slot = position >= 0 ? position : current.size();
+            staticScores.ensureDay(today());
+            if (position >= 0) {
+                // Same ID added again: replace the old entry in place rather than shadowing it
+                Course existing = current.get(position);
+                // Detached before its totals are subtracted, with changes held so none falls in between
+                existing.withChangesHeld(() -> {
+                    existing.removeChangeListener(catalogStatistics);
+                    existing.removeChangeListener(staticScores);
+                    existing.removeChangeListener(categoryIndex);
+                    existing.removeChangeListener(recommendationCache);
+                    existing.removeChangeListener(itemSimilarity);
+                    existing.removeChangeListener(queryIndex);
+                    existing.removeChangeListener(topRated);
+                    catalogStatistics.removeCourse(existing);
+                });
+                recommendationCache.invalidateCategory(existing.getCategory());
+            }
+            // Snapshotted and attached as one step, so a rating or enrollment is counted exactly once
+            course.withChangesHeld(() -> {
+                staticScores.set(slot, course);
+                queryIndex.set(slot, course);
+                if (position >= 0) {
+                    catalog = current.withReplaced(position, course);
+                } else {
+                    catalog = current.withAdded(course);
+                    // Published before indexing, so an indexed position is always visible
+                    indexPosition(course.getOrdinal(), current.size());
+                }
+                catalogStatistics.addCourse(course);
+                course.addChangeListener(catalogStatistics);
+                course.addChangeListener(staticScores);
+                course.addChangeListener(categoryIndex);
+                course.addChangeListener(recommendationCache);
+                course.addChangeListener(queryIndex);
+                course.addChangeListener(topRated);
+                topRated.indexCourse(course);
+                // Indexing replaces whatever ratings the old course contributed under this ID
+                itemSimilarity.indexCourse(course);
+                course.addChangeListener(itemSimilarity);
+            });
+            // Re-indexing replaces the text indexed under this ID, so edits go through here too
+            contentSimilarity.indexCourse(course);
+            searchIndex.indexCourse(course);
+            fuzzyLookup.indexCourse(course);
+            recommendationCache.invalidateCategory(course.getCategory());
+        }
     }
 
-    public void addUserProfile(User user) {
-        if (user == null) throw new IllegalArgumentException("User cannot be null");
-        userProfiles.put(user.getUserID(), user);
-        userPreferenceScores.put(user.getUserID(), initializePreferenceScores());
+    // Only called under the write lock, so growth cannot lose a concurrent entry
+    private void indexPosition(int ordinal, int position) {
+        int[] positions = positionsByOrdinal;
+        if (ordinal >= positions.length) {
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(ordinal + 1, Math.max(16, oldLength * 2)));
+            Arrays.fill(positions, oldLength, positions.length, -1);
+        }
+        positions[ordinal] = position;
+        positionsByOrdinal = positions;
     }
 
-    private Map<String, Double> initializePreferenceScores() {
-        Map<String, Double> scores = new HashMap<>();
-        for (CourseCategory category : CourseCategory.values()) {
-            scores.put(category.name(), 1.0);
+    // Catalog position of a course ordinal, or -1 if that course is not in the catalog
+    private int positionOf(int ordinal) {
+        int[] positions = positionsByOrdinal;
+        return ordinal >= 0 && ordinal < positions.length ? positions[ordinal] : -1;
+    }
+
+    public void addUserProfile(User user) {
+        if (user == null) throw new IllegalArgumentException("User cannot be null");
+        User previous = userProfiles.put(user.getOrdinal(), user);
+        if (previous != user) {
+            // A different instance (e.g. reloaded from file) may carry changes we never saw
+            if (previous != null) {
+                previous.removeChangeListener(preferenceLearner);
+                previous.removeChangeListener(coEnrollment);
+                previous.removeChangeListener(recommendationCache);
+            }
+            recommendationCache.invalidateUser(user.getOrdinal());
+            coEnrollment.addUser(user);
+            user.addChangeListener(coEnrollment);
+            // Learner before cache, so weights are updated before the cached result is dropped
+            user.addChangeListener(preferenceLearner);
+            user.addChangeListener(recommendationCache);
         }
-        return scores;
     }
 
     public List<Course> generateRecommendations(String userID) {
-        User user = userProfiles.get(userID);
+        return generateRecommendations(userID, MAX_RECOMMENDATIONS);
+    }
+
+    public List<Course> generateRecommendations(String userID, int k) {
+        return generateRecommendations(userID, k, ScoringMode.PRECOMPUTED);
+    }
+
+    /**
+     * PRECOMPUTED (the default) ranks from the static score column and per-category
+     * orderings and is cached; LIVE recomputes every input from the courses and is
+     * never cached, which makes it the reference for checking the fast path: both
+     * return the same courses in the same order, ties broken by catalog position.
+     * COLLABORATIVE is not cached either: any user's rating can move its neighbourhoods.
+     */
+    public List<Course> generateRecommendations(String userID, int k, ScoringMode mode) {
+        if (mode == null) throw new IllegalArgumentException("Scoring mode cannot be null");
+        if (k <= 0) throw new IllegalArgumentException("Number of recommendations must be positive");
+        User user = getUserById(userID);
         if (user == null) throw new IllegalArgumentException("User not found");
 
-        // Get user interests - make sure we're using the updated user data
-        Set<String> userInterests = user.getInterests();
+        // Only the partitions for the user's interest categories are ever touched
+        Set<CourseCategory> categories = user.getInterestCategories();
+        if (categories.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        int maxEnrollment = catalogStatistics.getMaxEnrollment();
+        // One snapshot and one clock reading for the whole request, so neither can shift mid-ranking
+        CatalogSnapshot snapshot = catalog;
+        long today = today();
+        if (mode == ScoringMode.LIVE) {
+            return rankByScan(snapshot, user, categories,
+                    position -> calculateStaticScore(snapshot.get(position), maxEnrollment, today),
+                    excludedPositions(snapshot, user), today, k);
+        }
+        if (mode == ScoringMode.COLLABORATIVE) {
+            return rankCollaborative(snapshot, user, categories, maxEnrollment, today, k);
+        }
+
+        int userOrdinal = user.getOrdinal();
+        RecommendationCache.Stamp stamp = recommendationCache.stamp(userOrdinal, categories, maxEnrollment, today);
+        List<Course> cached = recommendationCache.get(userOrdinal, k, maxEnrollment, today);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Course> recommendations = rankPrecomputed(snapshot, user, categories, maxEnrollment, today,
+                excludedPositions(snapshot, user), k);
+        recommendationCache.put(userOrdinal, k, recommendations, stamp);
+        return recommendations;
+    }
+
+    // Early-stopping merge of the category orderings when all are current, otherwise a scan
+    private List<Course> rankPrecomputed(CatalogSnapshot snapshot, User user, Set<CourseCategory> categories,
+                                         int maxEnrollment, long today, BitSet excluded, int k) {
+        staticScores.ensureDay(today);
+        IntToDoubleFunction staticScore = position -> precomputedStaticScore(position, maxEnrollment);
+        Map<CourseCategory, CategoryIndex.Ordering> orderings = new EnumMap<>(CourseCategory.class);
+        boolean allOrdered = true;
+        for (CourseCategory category : categories) {
+            CategoryIndex.Ordering ordering = categoryIndex.orderingIfReady(snapshot, category, maxEnrollment, today,
+                    staticScore);
+            if (ordering == null) {
+                allOrdered = false;
+            } else {
+                orderings.put(category, ordering);
+            }
+        }
+        return allOrdered
+                ? rankByOrderings(snapshot, user, orderings, excluded, today, k)
+                : rankByScan(snapshot, user, categories, staticScore, excluded, today, k);
+    }
+
+    /**
+     * Two candidate sources add an affinity on top of the precomputed score: courses
+     * neighbouring ones the user rated (item-item filtering) and courses other learners
+     * took alongside the user's (co-enrollment). They may come from outside the user's
+     * interests, scored without the interest bonus, and are ranked exactly; every other
+     * course keeps its precomputed score, so the top k of the rest (found with the
+     * usual early stop) completes the ranking.
+     */
+    private List<Course> rankCollaborative(CatalogSnapshot snapshot, User user, Set<CourseCategory> categories,
+                                           int maxEnrollment, long today, int k) {
+        staticScores.ensureDay(today);
+        BitSet excluded = excludedPositions(snapshot, user);
+        double[] bonuses = new double[CourseCategory.values().length];
+        for (CourseCategory category : categories) {
+            bonuses[category.ordinal()] = calculateInterestBonus(user, category, today) * INTEREST_BONUS_WEIGHT;
+        }
+
+        // Summed per course ordinal in a primitive table, only over the courses the sources name
+        OrdinalSums boosts = new OrdinalSums(1);
+        itemSimilarity.addAffinities(user.getOrdinal(), COLLABORATIVE_WEIGHT, boosts);
+        OrdinalSums coEnrolled = coEnrollmentAffinities(user);
+        for (int slot = 0; slot < coEnrolled.capacity(); slot++) {
+            int ordinal = coEnrolled.ordinalAt(slot);
+            if (ordinal != OrdinalSums.EMPTY) {
+                boosts.add(ordinal, 0, coEnrolled.sumAt(slot, 0) * CO_ENROLLMENT_WEIGHT);
+            }
+        }
 
-        return courseDatabase.parallelStream()
-                .filter(course -> isValidRecommendation(user, course))
-                // Only show courses matching user interests if they have any
-                .filter(course -> userInterests.isEmpty() || userInterests.contains(course.getCategory().name()))
-                .sorted(Comparator.comparingDouble(course -> calculateRecommendationScore(user, (Course) course)).reversed())
-                .limit(MAX_RECOMMENDATIONS)
-                .collect(Collectors.toList());
+        TopKSelector topK = new TopKSelector(k);
+        BitSet boosted = new BitSet();
+        for (int slot = 0; slot < boosts.capacity(); slot++) {
+            int ordinal = boosts.ordinalAt(slot);
+            if (ordinal == OrdinalSums.EMPTY) continue;
+            int position = positionOf(ordinal);
+            if (position < 0 || position >= snapshot.size() || excluded.get(position)) continue;
+            boosted.set(position);
+            topK.offer(precomputedStaticScore(position, maxEnrollment)
+                    + bonuses[snapshot.get(position).getCategory().ordinal()] + boosts.sumAt(slot, 0), position);
+        }
+
+        excluded.or(boosted);
+        for (Course course : rankPrecomputed(snapshot, user, categories, maxEnrollment, today, excluded, k)) {
+            int position = positionOf(course.getOrdinal());
+            topK.offer(precomputedStaticScore(position, maxEnrollment) + bonuses[course.getCategory().ordinal()],
+                    position);
+        }
+
+        List<Course> recommendations = new ArrayList<>(topK.size());
+        for (int position : topK.toSortedIndices()) {
+            recommendations.add(snapshot.get(position));
+        }
+        return recommendations;
     }
 
-    private boolean isValidRecommendation(User user, Course course) {
-        return !user.getCompletedCourses().contains(course.getCourseID()) &&
-                !user.getEnrolledCourseIds().contains(course.getCourseID()) &&
-                user.getInterests().contains(course.getCategory().name());
+    /**
+     * Recommends for many users at once on the engine's executor. All users share one
+     * catalog snapshot and one pass of precomputed static scores; results are yielded
+     * in completion order, with a bounded number of users in flight at a time.
+     */
+    public Iterator<Map.Entry<String, List<Course>>> generateRecommendations(Collection<String> userIds, int k) {
+        if (userIds == null) throw new IllegalArgumentException("User IDs cannot be null");
+        if (k <= 0) throw new IllegalArgumentException("Number of recommendations must be positive");
+        List<User> users = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            User user = getUserById(userId);
+            if (user == null) throw new IllegalArgumentException("User not found: " + userId);
+            users.add(user);
+        }
+
+        BatchSnapshot snapshot = new BatchSnapshot();
+        CompletionService<Map.Entry<String, List<Course>>> completion =
+                new ExecutorCompletionService<>(executorService);
+        int window = BATCH_TASKS_PER_THREAD * Runtime.getRuntime().availableProcessors();
+
+        return new Iterator<Map.Entry<String, List<Course>>>() {
+            private int submitted;
+            private int received;
+
+            {
+                while (submitted < users.size() && submitted < window) {
+                    submitNext();
+                }
+            }
+
+            private void submitNext() {
+                User user = users.get(submitted++);
+                completion.submit(() -> new AbstractMap.SimpleImmutableEntry<>(
+                        user.getUserID(), snapshot.recommend(user, k)));
+            }
+
+            @Override
+            public boolean hasNext() {
+                return received < users.size();
+            }
+
+            @Override
+            public Map.Entry<String, List<Course>> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                try {
+                    Map.Entry<String, List<Course>> result = completion.take().get();
+                    received++;
+                    if (submitted < users.size()) {
+                        submitNext();
+                    }
+                    return result;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Batch recommendation interrupted", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Batch recommendation failed", e.getCause());
+                }
+            }
+        };
     }
 
-    private double calculateRecommendationScore(User user, Course course) {
-        double ratingScore = (course.getAverageRating() / 5.0) * RATING_WEIGHT;
-        double recencyScore = calculateRecencyScore(course) * RECENCY_WEIGHT;
-        double enrollmentScore = calculateEnrollmentScore(course) * ENROLLMENT_WEIGHT;
-        double interestBonus = calculateInterestBonus(user, course) * INTEREST_BONUS_WEIGHT;
-        return ratingScore + recencyScore + enrollmentScore + interestBonus;
+    public Iterator<Map.Entry<String, List<Course>>> generateRecommendations(Collection<String> userIds) {
+        return generateRecommendations(userIds, MAX_RECOMMENDATIONS);
     }
 
-    private double calculateRecencyScore(Course course) {
-        long days = ChronoUnit.DAYS.between(course.getCreatedAt(), LocalDateTime.now());
-        return Math.exp(-days / 365.0);
+    // Callback flavour of the batch API; the callback runs on the calling thread
+    public void generateRecommendations(Collection<String> userIds, int k, BiConsumer<String, List<Course>> callback) {
+        if (callback == null) throw new IllegalArgumentException("Callback cannot be null");
+        Iterator<Map.Entry<String, List<Course>>> results = generateRecommendations(userIds, k);
+        while (results.hasNext()) {
+            Map.Entry<String, List<Course>> result = results.next();
+            callback.accept(result.getKey(), result.getValue());
+        }
     }
 
-    private double calculateEnrollmentScore(Course course) {
-        int maxEnrollment = courseDatabase.stream()
-                .mapToInt(Course::getEnrollmentCount)
-                .max().orElse(1);
-        return (double) course.getEnrollmentCount() / maxEnrollment;
+    // Catalog snapshot plus static scores, frozen once per batch and shared read-only by every worker
+    private final class BatchSnapshot {
+        private final CatalogSnapshot snapshot;
+        private final long today;
+        private final double[] scores;
+
+        private BatchSnapshot() {
+            int maxEnrollment = catalogStatistics.getMaxEnrollment();
+            snapshot = catalog;
+            today = today();
+            staticScores.ensureDay(today);
+            scores = new double[snapshot.size()];
+            Arrays.parallelSetAll(scores, i -> precomputedStaticScore(i, maxEnrollment));
+        }
+
+        private List<Course> recommend(User user, int k) {
+            BitSet excluded = excludedPositions(snapshot, user);
+            TopKSelector topK = new TopKSelector(k);
+            for (CourseCategory category : user.getInterestCategories()) {
+                double bonus = calculateInterestBonus(user, category, today) * INTEREST_BONUS_WEIGHT;
+                snapshot.members(category).forEach(position -> {
+                    if (!excluded.get(position)) {
+                        topK.offer(scores[position] + bonus, position);
+                    }
+                });
+            }
+            List<Course> recommendations = new ArrayList<>(topK.size());
+            for (int position : topK.toSortedIndices()) {
+                recommendations.add(snapshot.get(position));
+            }
+            return recommendations;
+        }
     }
 
-    private double calculateInterestBonus(User user, Course course) {
-        return user.getInterests().contains(course.getCategory().name()) ?
-                userPreferenceScores.get(user.getUserID()).getOrDefault(course.getCategory().name(), 1.0) : 0.0;
+    // Per candidate course ordinal: its co-taken count relative to the most co-taken course,
+    // averaged over every course the user has taken, so in [0, 1]
+    private OrdinalSums coEnrollmentAffinities(User user) {
+        IntStream.Builder builder = IntStream.builder();
+        user.forEachTakenCourse(builder::add);
+        int[] taken = builder.build().toArray();
+        OrdinalSums affinities = new OrdinalSums(1);
+        for (int course : taken) {
+            int[][] alsoTaken = coEnrollment.alsoTaken(course, CO_ENROLLMENT_CANDIDATES);
+            for (int i = 0; i < alsoTaken[0].length; i++) {
+                affinities.add(alsoTaken[0][i], 0, (double) alsoTaken[1][i] / alsoTaken[1][0] / taken.length);
+            }
+        }
+        return affinities;
+    }
+
+    /**
+     * Translates the user's enrolled/completed/dismissed course ordinals into catalog
+     * positions of this snapshot, once per request, so candidate filtering is a bit
+     * test on the position and never touches the Course or the user's lists.
+     */
+    private BitSet excludedPositions(CatalogSnapshot snapshot, User user) {
+        BitSet excluded = new BitSet();
+        user.forEachExcludedCourse(ordinal -> {
+            int position = positionOf(ordinal);
+            // Positions indexed after this snapshot was taken are not candidates anyway
+            if (position >= 0 && position < snapshot.size()) {
+                excluded.set(position);
+            }
+        });
+        return excluded;
+    }
+
+    // Scores every candidate of the selected partitions once and keeps the best k
+    private List<Course> rankByScan(CatalogSnapshot snapshot, User user, Set<CourseCategory> categories,
+                                    IntToDoubleFunction staticScore, BitSet excluded, long today, int k) {
+        TopKSelector topK = new TopKSelector(k);
+        for (CourseCategory category : categories) {
+            // The bonus is the same for the whole partition, so it is computed once per category
+            double bonus = calculateInterestBonus(user, category, today) * INTEREST_BONUS_WEIGHT;
+            // One bounded heap per worker, merged at the end: O(n log k) instead of a full sort
+            topK.merge(snapshot.members(category)
+                    .parallel()
+                    .filter(position -> !excluded.get(position))
+                    .collect(() -> new TopKSelector(k),
+                            (selector, position) -> selector.offer(staticScore.applyAsDouble(position) + bonus, position),
+                            TopKSelector::merge));
+        }
+
+        List<Course> recommendations = new ArrayList<>(topK.size());
+        for (int position : topK.toSortedIndices()) {
+            recommendations.add(snapshot.get(position));
+        }
+        return recommendations;
+    }
+
+    // Merges the precomputed per-category orderings and stops as soon as k valid courses are found
+    private List<Course> rankByOrderings(CatalogSnapshot snapshot, User user,
+                                         Map<CourseCategory, CategoryIndex.Ordering> orderings, BitSet excluded,
+                                         long today, int k) {
+        int count = orderings.size();
+        CategoryIndex.Ordering[] lists = new CategoryIndex.Ordering[count];
+        double[] bonuses = new double[count];
+        int[] cursors = new int[count];
+        int c = 0;
+        for (Map.Entry<CourseCategory, CategoryIndex.Ordering> entry : orderings.entrySet()) {
+            lists[c] = entry.getValue();
+            bonuses[c] = calculateInterestBonus(user, entry.getKey(), today) * INTEREST_BONUS_WEIGHT;
+            c++;
+        }
+
+        List<Course> recommendations = new ArrayList<>(Math.min(k, snapshot.size()));
+        while (recommendations.size() < k) {
+            int best = -1;
+            double bestScore = 0.0;
+            int bestPosition = 0;
+            for (int i = 0; i < count; i++) {
+                if (cursors[i] >= lists[i].size()) continue;
+                double score = lists[i].scoreAt(cursors[i]) + bonuses[i];
+                int position = lists[i].positionAt(cursors[i]);
+                if (best < 0 || score > bestScore || (score == bestScore && position < bestPosition)) {
+                    best = i;
+                    bestScore = score;
+                    bestPosition = position;
+                }
+            }
+            if (best < 0) break;
+
+            cursors[best]++;
+            if (!excluded.get(bestPosition)) {
+                recommendations.add(snapshot.get(bestPosition));
+            }
+        }
+        return recommendations;
+    }
+
+    private long today() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+
+    // The user-independent part of the score, read live from the course
+    private double calculateStaticScore(Course course, int maxEnrollment, long today) {
+        return combineStaticScore(course.getAverageRating(),
+                StaticScoreColumn.recencyFactor(today - course.getCreatedEpochDay()),
+                course.getEnrollmentCount(), maxEnrollment);
+    }
+
+    // The same score read from the packed column
+    private double precomputedStaticScore(int position, int maxEnrollment) {
+        return combineStaticScore(staticScores.averageRating(position), staticScores.recencyFactor(position),
+                staticScores.enrollment(position), maxEnrollment);
+    }
+
+    private static double combineStaticScore(double averageRating, double recencyFactor,
+                                             int enrollment, int maxEnrollment) {
+        double ratingScore = (averageRating / 5.0) * RATING_WEIGHT;
+        double recencyScore = recencyFactor * RECENCY_WEIGHT;
+        double enrollmentScore = calculateEnrollmentScore(enrollment, maxEnrollment) * ENROLLMENT_WEIGHT;
+        // Rounded to a multiple of 2^-SCORE_GRID_BITS, so adding a category's bonus cannot make two
+        // distinct scores equal: the per-category orderings then merge in exactly the scan's order
+        return Math.scalb(Math.rint(Math.scalb(ratingScore + recencyScore + enrollmentScore, SCORE_GRID_BITS)),
+                -SCORE_GRID_BITS);
+    }
+
+    private static double calculateEnrollmentScore(int enrollment, int maxEnrollment) {
+        return maxEnrollment > 0 ? (double) enrollment / maxEnrollment : 0.0;
+    }
+
+    // The user's learned weight for the category, as decayed to the request's day
+    private double calculateInterestBonus(User user, CourseCategory category, long today) {
+        return user.isInterestedIn(category) ? user.getPreferenceWeights().weight(category, today) : 0.0;
     }
 
     public User getUserById(String userId) {
-        return userProfiles.get(userId);
+        // lookup never interns, so probing unknown IDs does not grow the dictionary
+        return userProfiles.get(IdDictionary.USERS.lookup(userId));
     }
 
     public Course getCourseById(String courseId) {
-        return courseDatabase.stream()
-                .filter(c -> c.getCourseID().equals(courseId))
-                .findFirst()
-                .orElse(null);
+        int position = positionOf(IdDictionary.COURSES.lookup(courseId));
+        return position < 0 ? null : catalog.get(position);
+    }
+
+    public CatalogStatistics getCatalogStatistics() {
+        return catalogStatistics;
+    }
+
+    // Rebuilds "learners also took" from scratch over the given learners, e.g. every saved user
+    public void buildCoEnrollmentGraph(Collection<User> users) {
+        if (users == null) throw new IllegalArgumentException("Users cannot be null");
+        coEnrollment.rebuild(users);
+    }
+
+    // The k catalog courses most often taken by learners who also took the given one
+    public List<Course> getAlsoTaken(String courseId, int k) {
+        if (k <= 0) throw new IllegalArgumentException("Number of courses must be positive");
+        List<Course> courses = new ArrayList<>();
+        int ordinal = IdDictionary.COURSES.lookup(courseId);
+        if (ordinal < 0) return courses;
+        CatalogSnapshot snapshot = catalog;
+        for (int other : coEnrollment.alsoTaken(ordinal, k)[0]) {
+            int position = positionOf(other);
+            if (position >= 0 && position < snapshot.size()) {
+                courses.add(snapshot.get(position));
+            }
+        }
+        return courses;
+    }
+
+    /**
+     * Full-text search over title, description, provider, category and ID, best match
+     * first. A word ending in '*' matches as a prefix, e.g. "pyth*"; a prefix matching
+     * more than 64 indexed terms searches only the first 64 in alphabetical order.
+     */
+    public List<Course> searchCourses(String query, int k) {
+        if (k <= 0) throw new IllegalArgumentException("Number of courses must be positive");
+        List<Course> courses = new ArrayList<>();
+        CatalogSnapshot snapshot = catalog;
+        for (int ordinal : searchIndex.search(query, k)) {
+            int position = positionOf(ordinal);
+            if (position >= 0 && position < snapshot.size()) {
+                courses.add(snapshot.get(position));
+            }
+        }
+        return courses;
+    }
+
+    // "Did you mean": catalog courses whose ID or title is closest to a mistyped one
+    public List<Course> suggestCourses(String idOrTitle, int k) {
+        if (k <= 0) throw new IllegalArgumentException("Number of courses must be positive");
+        List<Course> courses = new ArrayList<>();
+        CatalogSnapshot snapshot = catalog;
+        for (int ordinal : fuzzyLookup.suggest(idOrTitle, k)) {
+            int position = positionOf(ordinal);
+            if (position >= 0 && position < snapshot.size()) {
+                courses.add(snapshot.get(position));
+            }
+        }
+        return courses;
+    }
+
+    // Every catalog course matching the query, in catalog order
+    public List<Course> queryCourses(CatalogQuery query) {
+        return queryCourses(query, 0, Integer.MAX_VALUE);
+    }
+
+    // One page of the matches, in catalog order
+    public List<Course> queryCourses(CatalogQuery query, int offset, int limit) {
+        if (query == null) throw new IllegalArgumentException("Query cannot be null");
+        if (offset < 0 || limit <= 0) throw new IllegalArgumentException("Invalid page");
+        CatalogSnapshot snapshot = catalog;
+        List<Course> courses = new ArrayList<>();
+        int[] skipped = {0};
+        queryIndex.match(query).forEach(position -> {
+            // Positions indexed after this snapshot was taken are not part of it
+            if (position >= snapshot.size() || courses.size() == limit) return;
+            if (skipped[0] < offset) {
+                skipped[0]++;
+            } else {
+                courses.add(snapshot.get(position));
+            }
+        });
+        return courses;
+    }
+
+    // Per-attribute match counts for faceted browsing
+    public CatalogQueryIndex.Facets getFacets(CatalogQuery query) {
+        if (query == null) throw new IllegalArgumentException("Query cannot be null");
+        return queryIndex.facets(query);
+    }
+
+    // The k rated courses with the best Bayesian average rating, best first
+    public List<Course> topRatedCourses(int k) {
+        if (k <= 0) throw new IllegalArgumentException("Number of courses must be positive");
+        return coursesOf(topRated.topRated(k));
+    }
+
+    public List<Course> topRatedCourses(CourseCategory category, int k) {
+        if (category == null) throw new IllegalArgumentException("Category cannot be null");
+        if (k <= 0) throw new IllegalArgumentException("Number of courses must be positive");
+        return coursesOf(topRated.topRated(category, k));
+    }
+
+    // Rated courses whose Bayesian average lies in [minScore, maxScore], best first, at most limit
+    public List<Course> coursesRatedBetween(double minScore, double maxScore, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("Number of courses must be positive");
+        return coursesOf(topRated.inScoreRange(minScore, maxScore, limit));
+    }
+
+    private List<Course> coursesOf(int[] ordinals) {
+        List<Course> courses = new ArrayList<>();
+        CatalogSnapshot snapshot = catalog;
+        for (int ordinal : ordinals) {
+            int position = positionOf(ordinal);
+            if (position >= 0 && position < snapshot.size()) {
+                courses.add(snapshot.get(position));
+            }
+        }
+        return courses;
+    }
+
+    // "More like this": the k catalog courses whose title and description read most alike
+    public List<Course> similarCourses(String courseId, int k) {
+        if (k <= 0) throw new IllegalArgumentException("Number of courses must be positive");
+        List<Course> courses = new ArrayList<>();
+        int ordinal = IdDictionary.COURSES.lookup(courseId);
+        if (ordinal < 0) return courses;
+        CatalogSnapshot snapshot = catalog;
+        for (int other : contentSimilarity.similarCourses(ordinal, k)) {
+            int position = positionOf(other);
+            if (position >= 0 && position < snapshot.size()) {
+                courses.add(snapshot.get(position));
+            }
+        }
+        return courses;
+    }
+
+    public ItemSimilarityIndex getItemSimilarityIndex() {
+        return itemSimilarity;
+    }
+
+    public RecommendationCache getRecommendationCache() {
+        return recommendationCache;
+    }
+
+    public void configureRecommendationCache(long ttlMillis, int maxEntries) {
+        recommendationCache.configure(ttlMillis, maxEntries);
     }
 
     public List<Course> getAllCourses() {
-        return new ArrayList<>(courseDatabase);
+        return new ArrayList<>(catalog.asList());
+    }
+
+    // The current immutable catalog view, for callers that want a consistent read
+    public CatalogSnapshot getCatalogSnapshot() {
+        return catalog;
     }
 
     public void shutdown() {
@@ -126,25 +709,24 @@ public class RecommendationEngine {
 
     /// /////////////////////////////GUi
     public List<Course> getRecommendedCourses(User currentUser) {
+        return getRecommendedCourses(currentUser, MAX_RECOMMENDATIONS);
+    }
+
+    public List<Course> getRecommendedCourses(User currentUser, int k) {
         if (currentUser == null) {
             throw new IllegalArgumentException("User cannot be null");
         }
-        return generateRecommendations(currentUser.getUserID());
+        return generateRecommendations(currentUser.getUserID(), k);
     }
 
     private final Map<String, List<Integer>> courseRatings = new HashMap<>();
 
 
     public List<User> getAllUsers() {
-        return new ArrayList<>(userProfiles.values());
+        return userProfiles.values();
     }
 
     public Course getCourse(String id) {
-        for (Course course : courseDatabase) {
-            if (course.getCourseID().equals(id)) {
-                return course;
-            }
-        }
-        return null;
+        return getCourseById(id);
     }
 }
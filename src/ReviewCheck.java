@@ -0,0 +1,76 @@
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Top reviews and review pages must match sorting every review by quality, newer
+ * first among equals, and the review map handed out must be read-only.
+ */
+final class ReviewCheck implements EngineCheck {
+    private static final int[] REVIEW_COUNTS = {1, 5, 100, 10_000};
+    private static final String[] WORDS = {"clear", "examples", "pace", "projects", "hard", "useful", "slides",
+            "quizzes", "instructor", "helpful", "boring", "deep", "practical", "theory", "exercises", "great"};
+
+    @Override
+    public String name() {
+        return "reviews";
+    }
+
+    @Override
+    public void run(List<String> failures) {
+        for (int size : REVIEW_COUNTS) {
+            Random random = new Random(EngineFixtures.SEED + size);
+            Course course = new Course("REVIEWED" + size, "Reviewed Course", CourseCategory.DESIGN,
+                    CourseDifficulty.BEGINNER, "provider", "A course that collects many reviews");
+            List<String> texts = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                StringBuilder text = new StringBuilder();
+                for (int w = random.nextInt(30); w >= 0; w--) {
+                    text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                }
+                texts.add(text.toString().trim());
+                course.addReview("reviewer" + (i % 50), texts.get(i));
+            }
+            check(course, texts, failures);
+        }
+    }
+
+    private static void check(Course course, List<String> texts, List<String> failures) {
+        String id = course.getCourseID();
+        // Arrival index, best first: higher quality, then newer
+        List<Integer> ranked = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            ranked.add(i);
+        }
+        ranked.sort(Comparator.comparingInt((Integer i) -> -ReviewRanking.quality(texts.get(i)))
+                .thenComparing(Comparator.reverseOrder()));
+        List<String> bestFirst = ranked.stream().map(texts::get).collect(Collectors.toList());
+
+        if (course.getReviewCount() != texts.size()) {
+            failures.add(id + " counts " + course.getReviewCount() + " reviews, expected " + texts.size());
+        }
+        for (int k : new int[]{1, 2, ReviewRanking.TOP_KEPT, ReviewRanking.TOP_KEPT + 5}) {
+            List<String> expected = bestFirst.subList(0, Math.min(k, bestFirst.size()));
+            if (!new ArrayList<>(course.getTopReviews(k)).equals(expected)) {
+                failures.add(id + " top " + k + " reviews out of order");
+            }
+        }
+        int offset = Math.min(100, texts.size());
+        List<String> page = course.getReviewPage(offset, 5).stream()
+                .map(ReviewRanking.Review::getText)
+                .collect(Collectors.toList());
+        if (!page.equals(bestFirst.subList(offset, Math.min(offset + 5, bestFirst.size())))) {
+            failures.add(id + " review page at " + offset + " out of order");
+        }
+
+        Map<String, List<String>> reviews = course.getReviews();
+        if (reviews.values().stream().mapToInt(List::size).sum() != texts.size()) {
+            failures.add(id + " review map holds the wrong number of reviews");
+        }
+        try {
+            reviews.values().iterator().next().add("injected");
+            failures.add(id + " review lists can be modified through getReviews()");
+        } catch (UnsupportedOperationException expected) {
+            // Read-only, as it should be
+        }
+    }
+}
@@ -0,0 +1,108 @@
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * One course's reviews ranked by quality: how many distinct meaningful words a
+ * review uses (TextTokenizer terms), capped so length stops paying off once a
+ * review has said enough, with newer reviews first among equals. Repeating a
+ * word or padding with punctuation does not raise a review. The score is fixed
+ * when the review arrives, so the ranking only changes on add.
+ *
+ * The best TOP_KEPT reviews sit in a small array, replaced copy-on-write on
+ * each add that displaces one; top(k) wraps it without copying or sorting.
+ * Every review is also kept in a skip list in rank order for paging through
+ * the full list. Writers are serialized on the ranking; readers never lock.
+ */
+public final class ReviewRanking implements Serializable {
+    private static final long serialVersionUID = 1L;
+    public static final int TOP_KEPT = 10;
+    // Distinct words past which a longer review ranks no higher
+    private static final int MAX_QUALITY_WORDS = 60;
+
+    private static final Comparator<Review> BEST_FIRST = (Comparator<Review> & Serializable) (a, b) -> {
+        int byQuality = Integer.compare(b.quality, a.quality);
+        return byQuality != 0 ? byQuality : Long.compare(b.sequence, a.sequence);
+    };
+
+    public static final class Review implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String author;
+        private final String text;
+        private final int quality;
+        // Arrival order within the course; higher is newer
+        private final long sequence;
+
+        private Review(String author, String text, int quality, long sequence) {
+            this.author = author;
+            this.text = text;
+            this.quality = quality;
+            this.sequence = sequence;
+        }
+
+        public String getAuthor() { return author; }
+        public String getText() { return text; }
+        public int getQuality() { return quality; }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private final ConcurrentSkipListSet<Review> ranked = new ConcurrentSkipListSet<>(BEST_FIRST);
+    // Best first, at most TOP_KEPT long
+    private volatile Review[] top = new Review[0];
+    private volatile int size;
+    private long nextSequence;
+
+    public synchronized Review add(String author, String text) {
+        Review review = new Review(author, text, quality(text), nextSequence++);
+        ranked.add(review);
+        Review[] current = top;
+        if (current.length < TOP_KEPT || BEST_FIRST.compare(review, current[current.length - 1]) < 0) {
+            // Newest of its quality, so it goes ahead of every equal
+            int at = -Arrays.binarySearch(current, review, BEST_FIRST) - 1;
+            int length = Math.min(current.length + 1, TOP_KEPT);
+            Review[] next = new Review[length];
+            System.arraycopy(current, 0, next, 0, at);
+            next[at] = review;
+            System.arraycopy(current, at, next, at + 1, length - at - 1);
+            top = next;
+        }
+        size++;
+        return review;
+    }
+
+    static int quality(String text) {
+        return Math.min(new HashSet<>(TextTokenizer.tokenize(text)).size(), MAX_QUALITY_WORDS);
+    }
+
+    // The k best reviews, best first; up to TOP_KEPT they are a read-only view of the kept array
+    public List<Review> top(int k) {
+        if (k <= 0) throw new IllegalArgumentException("Number of reviews must be positive");
+        if (k > TOP_KEPT) return page(0, k);
+        Review[] current = top;
+        return Collections.unmodifiableList(Arrays.asList(current)).subList(0, Math.min(k, current.length));
+    }
+
+    // Reviews ranked offset to offset + limit - 1, best first; walks past the first offset reviews
+    public List<Review> page(int offset, int limit) {
+        if (offset < 0 || limit <= 0) throw new IllegalArgumentException("Invalid page");
+        List<Review> page = new ArrayList<>(Math.min(limit, TOP_KEPT));
+        int skipped = 0;
+        for (Review review : ranked) {
+            if (page.size() == limit) break;
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(review);
+            }
+        }
+        return page;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.*;
+
+/**
+ * Full-text search must find a course by its ID and by a prefix, and once courses
+ * are re-indexed with new text, only the new text may match them, also after
+ * enough replacements to compact the index.
+ */
+final class SearchCheck implements EngineCheck {
+    private static final int CATALOG_SIZE = 2_000;
+    // More than the index lets pile up dead before it compacts
+    private static final int REPLACEMENTS = 1_500;
+
+    @Override
+    public String name() {
+        return "search";
+    }
+
+    @Override
+    public void run(List<String> failures) {
+        RecommendationEngine engine = EngineFixtures.buildEngine(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i += 97) {
+            List<Course> found = engine.searchCourses("bench" + i, 1);
+            if (found.isEmpty() || !found.get(0).getCourseID().equals("BENCH" + i)) {
+                failures.add("Searching for BENCH" + i + " found " + found);
+            }
+        }
+        // Providers run 0-49, so "provider7*" matches Provider7 alone
+        List<Course> provider = engine.searchCourses("provider7*", CATALOG_SIZE);
+        if (provider.size() != CATALOG_SIZE / 50
+                || provider.stream().anyMatch(course -> !course.getProvider().equals("Provider7"))) {
+            failures.add("Prefix search for provider7* found " + provider.size() + " courses");
+        }
+
+        for (int i = 0; i < REPLACEMENTS; i++) {
+            Course old = engine.getCourseById("BENCH" + i);
+            engine.addCourse(new Course(old.getCourseID(), "Replaced Course " + i, old.getCategory(),
+                    old.getDifficulty(), old.getProvider(), "Rewritten gardening notes " + i));
+        }
+        List<Course> synthetic = engine.searchCourses("synthetic", CATALOG_SIZE);
+        if (synthetic.size() != CATALOG_SIZE - REPLACEMENTS) {
+            failures.add("Old text still matches: " + synthetic.size() + " courses, expected "
+                    + (CATALOG_SIZE - REPLACEMENTS));
+        }
+        List<Course> gardening = engine.searchCourses("gardening", CATALOG_SIZE);
+        if (gardening.size() != REPLACEMENTS || new HashSet<>(gardening).size() != gardening.size()) {
+            failures.add("New text matches " + gardening.size() + " courses, expected " + REPLACEMENTS);
+        }
+        for (int i = 0; i < REPLACEMENTS; i += 97) {
+            List<Course> found = engine.searchCourses("replaced " + i, 1);
+            if (found.isEmpty() || found.get(0) != engine.getCourseById("BENCH" + i)) {
+                failures.add("Searching for replaced course " + i + " found " + found);
+            }
+        }
+        engine.shutdown();
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.*;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Structure-of-arrays store of the user-independent score inputs, indexed by
+ * catalog position: average rating, creation day, recency factor and enrollment count.
+ * Rating and enrollment slots are refreshed from course events, recency once
+ * per day, so requests read packed primitives instead of walking Course objects.
+ * Recency is exp(-ageDays / 365), served from a precomputed table.
+ */
+public class StaticScoreColumn implements Course.ChangeListener {
+    private static final int INITIAL_CAPACITY = 16;
+    // Ten years of daily decay factors; older courses fall back to Math.exp
+    private static final double[] DECAY_BY_AGE = new double[3651];
+
+    static {
+        for (int days = 0; days < DECAY_BY_AGE.length; days++) {
+            DECAY_BY_AGE[days] = Math.exp(-days / 365.0);
+        }
+    }
+
+    // Course ordinal to catalog position, -1 when the course is not in the catalog
+    private final IntUnaryOperator positions;
+    // Replaced wholesale on growth; readers see either the old or the new array
+    private volatile double[] averageRatings = new double[INITIAL_CAPACITY];
+    private volatile double[] recencyFactors = new double[INITIAL_CAPACITY];
+    private volatile int[] enrollments = new int[INITIAL_CAPACITY];
+    private long[] createdDays = new long[INITIAL_CAPACITY];
+    private int size;
+    private volatile long recencyDay;
+
+    public StaticScoreColumn(IntUnaryOperator positions, long today) {
+        this.positions = positions;
+        this.recencyDay = today;
+    }
+
+    public synchronized void set(int position, Course course) {
+        if (position >= enrollments.length) {
+            int capacity = Math.max(position + 1, enrollments.length * 2);
+            averageRatings = Arrays.copyOf(averageRatings, capacity);
+            recencyFactors = Arrays.copyOf(recencyFactors, capacity);
+            enrollments = Arrays.copyOf(enrollments, capacity);
+            createdDays = Arrays.copyOf(createdDays, capacity);
+        }
+        size = Math.max(size, position + 1);
+        averageRatings[position] = course.getAverageRating();
+        createdDays[position] = course.getCreatedEpochDay();
+        recencyFactors[position] = recencyFactor(recencyDay - createdDays[position]);
+        enrollments[position] = course.getEnrollmentCount();
+    }
+
+    // The daily tick: recency factors are recomputed for every course once the day rolls over,
+    // into a fresh array published whole, so unlocked readers never see one half-rewritten
+    public void ensureDay(long today) {
+        if (recencyDay == today) return;
+        synchronized (this) {
+            if (recencyDay == today) return;
+            double[] factors = new double[recencyFactors.length];
+            for (int i = 0; i < size; i++) {
+                factors[i] = recencyFactor(today - createdDays[i]);
+            }
+            recencyFactors = factors;
+            recencyDay = today;
+        }
+    }
+
+    static double recencyFactor(long ageDays) {
+        return ageDays >= 0 && ageDays < DECAY_BY_AGE.length
+                ? DECAY_BY_AGE[(int) ageDays]
+                : Math.exp(-ageDays / 365.0);
+    }
+
+    public double averageRating(int position) { return averageRatings[position]; }
+    public double recencyFactor(int position) { return recencyFactors[position]; }
+    public int enrollment(int position) { return enrollments[position]; }
+
+    private int positionOf(Course course) {
+        return positions.applyAsInt(course.getOrdinal());
+    }
+
+    @Override
+    public synchronized void onEnrollmentChanged(Course course, int previousCount) {
+        int position = positionOf(course);
+        if (position >= 0 && position < enrollments.length) {
+            enrollments[position] = course.getEnrollmentCount();
+        }
+    }
+
+    @Override
+    public synchronized void onRatingAdded(Course course, int userOrdinal, int rating, double previousAverage, int previousCount) {
+        int position = positionOf(course);
+        if (position >= 0 && position < averageRatings.length) {
+            averageRatings[position] = course.getAverageRating();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recommenders and writers hammer one engine concurrently; afterwards the catalog,
+ * index and statistics must agree exactly and no recommendation may be malformed.
+ */
+final class StressCheck implements EngineCheck {
+    private static final int CATALOG_SIZE = 20_000;
+    private static final int READERS = 8;
+    private static final int WRITERS = 4;
+    private static final int USERS_PER_WRITER = 4;
+    private static final long DURATION_MILLIS = 10_000;
+
+    @Override
+    public String name() {
+        return "stress";
+    }
+
+    @Override
+    public void run(List<String> failures) throws InterruptedException {
+        System.out.println("🔥 Stress test: " + READERS + " recommenders, " + WRITERS + " writers, "
+                + DURATION_MILLIS / 1000 + "s");
+        RecommendationEngine engine = EngineFixtures.buildEngine(CATALOG_SIZE);
+        CourseCategory[] categories = CourseCategory.values();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < WRITERS * USERS_PER_WRITER; i++) {
+            User user = EngineFixtures.buildUser("stress" + i);
+            engine.addUserProfile(user);
+            users.add(user);
+        }
+
+        long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+        // Recorded from every thread, then handed over once the pool has stopped
+        ConcurrentLinkedQueue<String> found = new ConcurrentLinkedQueue<>();
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger[] added = new AtomicInteger[WRITERS];
+        ExecutorService pool = Executors.newFixedThreadPool(READERS + WRITERS);
+
+        for (int r = 0; r < READERS; r++) {
+            int seed = r;
+            pool.submit(() -> {
+                Random random = new Random(seed);
+                while (System.currentTimeMillis() < deadline && found.isEmpty()) {
+                    User user = users.get(random.nextInt(users.size()));
+                    int k = 1 + random.nextInt(20);
+                    try {
+                        List<Course> result = engine.generateRecommendations(user.getUserID(), k);
+                        if (result.size() > k || new HashSet<>(result).size() != result.size()) {
+                            found.add("Malformed result for " + user.getUserID() + ": " + result.size());
+                        }
+                        for (Course course : result) {
+                            if (course == null || engine.getCourseById(course.getCourseID()) == null) {
+                                found.add("Recommended a course missing from the catalog");
+                            }
+                        }
+                        requests.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        found.add("Recommender failed: " + e);
+                    }
+                }
+            });
+        }
+
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            added[w] = new AtomicInteger();
+            pool.submit(() -> {
+                Random random = new Random(1000 + writer);
+                List<Course> own = new ArrayList<>();
+                while (System.currentTimeMillis() < deadline && found.isEmpty()) {
+                    try {
+                        int action = random.nextInt(10);
+                        if (action < 4 || own.isEmpty()) {
+                            int n = added[writer].getAndIncrement();
+                            Course course = new Course("STRESS-" + writer + "-" + n, "Stress " + n,
+                                    categories[random.nextInt(categories.length)], CourseDifficulty.BEGINNER,
+                                    "Provider", "Stress course");
+                            engine.addCourse(course);
+                            own.add(course);
+                        } else if (action < 5) {
+                            // Re-adding an ID replaces the course in place
+                            Course old = own.get(random.nextInt(own.size()));
+                            Course replacement = new Course(old.getCourseID(), old.getTitle(),
+                                    categories[random.nextInt(categories.length)], CourseDifficulty.ADVANCED,
+                                    "Provider", "Replaced course");
+                            engine.addCourse(replacement);
+                            own.set(own.indexOf(old), replacement);
+                        } else if (action < 7) {
+                            own.get(random.nextInt(own.size())).incrementEnrollment();
+                        } else if (action < 9) {
+                            own.get(random.nextInt(own.size())).addRating("w" + writer, 1 + random.nextInt(5));
+                        } else {
+                            User user = users.get(writer * USERS_PER_WRITER + random.nextInt(USERS_PER_WRITER));
+                            user.setInterests(Collections.singleton(categories[random.nextInt(categories.length)].name()));
+                        }
+                    } catch (RuntimeException e) {
+                        found.add("Writer failed: " + e);
+                    }
+                }
+            });
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(DURATION_MILLIS + 60_000, TimeUnit.MILLISECONDS);
+
+        // Afterwards the snapshot, the ID index and the statistics must agree exactly
+        int expectedSize = CATALOG_SIZE;
+        for (AtomicInteger count : added) {
+            expectedSize += count.get();
+        }
+        CatalogSnapshot snapshot = engine.getCatalogSnapshot();
+        if (snapshot.size() != expectedSize) {
+            found.add("Catalog has " + snapshot.size() + " courses, expected " + expectedSize);
+        }
+        long enrollment = 0;
+        int partitioned = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            Course course = snapshot.get(i);
+            if (engine.getCourseById(course.getCourseID()) != course) {
+                found.add("Index out of step for " + course.getCourseID());
+                break;
+            }
+            enrollment += course.getEnrollmentCount();
+        }
+        for (CourseCategory category : categories) {
+            partitioned += snapshot.memberCount(category);
+        }
+        CatalogStatistics statistics = engine.getCatalogStatistics();
+        if (partitioned != snapshot.size() || statistics.getCourseCount() != snapshot.size()) {
+            found.add("Partitions/statistics disagree with catalog size");
+        }
+        if (statistics.getTotalEnrollment() != enrollment) {
+            found.add("Total enrollment " + statistics.getTotalEnrollment() + ", expected " + enrollment);
+        }
+        engine.shutdown();
+
+        System.out.println("Requests served: " + requests.get() + ", catalog size: " + snapshot.size());
+        failures.addAll(found);
+    }
+}
@@ -0,0 +1,27 @@
+import java.util.*;
+
+/**
+ * Splits free text (course titles, descriptions, search queries) into lower-case
+ * word tokens. Shared by every text index so documents and queries always agree
+ * on what a term is.
+ */
+public final class TextTokenizer {
+    // Words too common in course text to tell two courses apart
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "into", "is", "it",
+            "of", "on", "or", "the", "to", "with", "your", "you", "how"));
+
+    private TextTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+/**
+ * Keeps the k best (score, index) pairs seen so far in a bounded min-heap
+ * backed by primitive arrays. Ties are broken in favour of the lower index,
+ * which matches the ordering of a stable descending sort. The arrays grow with
+ * the pairs actually offered, so a k far beyond the candidate count costs
+ * nothing up front.
+ */
+public class TopKSelector {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int capacity;
+    private double[] scores;
+    private int[] indices;
+    private int size;
+
+    public TopKSelector(int k) {
+        if (k <= 0) throw new IllegalArgumentException("k must be positive");
+        this.capacity = k;
+        this.scores = new double[Math.min(k, INITIAL_CAPACITY)];
+        this.indices = new int[scores.length];
+    }
+
+    // A copy to drain, so sorting leaves this heap untouched
+    private TopKSelector(TopKSelector other) {
+        this.capacity = other.capacity;
+        this.scores = Arrays.copyOf(other.scores, other.size);
+        this.indices = Arrays.copyOf(other.indices, other.size);
+        this.size = other.size;
+    }
+
+    public void offer(double score, int index) {
+        if (size < capacity) {
+            if (size == scores.length) {
+                int grown = (int) Math.min(capacity, 2L * scores.length);
+                scores = Arrays.copyOf(scores, grown);
+                indices = Arrays.copyOf(indices, grown);
+            }
+            scores[size] = score;
+            indices[size] = index;
+            siftUp(size++);
+        } else if (isBetter(score, index, scores[0], indices[0])) {
+            scores[0] = score;
+            indices[0] = index;
+            siftDown(0);
+        }
+    }
+
+    // Folds another worker's heap into this one
+    public TopKSelector merge(TopKSelector other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.scores[i], other.indices[i]);
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Indices ordered from best to worst; the heap itself is left untouched
+    public int[] toSortedIndices() {
+        TopKSelector drain = new TopKSelector(this);
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = drain.pollWorst();
+        }
+        return result;
+    }
+
+    // Scores in the same order as toSortedIndices()
+    public double[] toSortedScores() {
+        TopKSelector drain = new TopKSelector(this);
+        double[] result = new double[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = drain.scores[0];
+            drain.pollWorst();
+        }
+        return result;
+    }
+
+    private int pollWorst() {
+        int worst = indices[0];
+        size--;
+        scores[0] = scores[size];
+        indices[0] = indices[size];
+        siftDown(0);
+        return worst;
+    }
+
+    private static boolean isBetter(double score, int index, double otherScore, int otherIndex) {
+        int cmp = Double.compare(score, otherScore);
+        return cmp > 0 || (cmp == 0 && index < otherIndex);
+    }
+
+    private void siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (!isBetter(scores[parent], indices[parent], scores[pos], indices[pos])) break;
+            swap(pos, parent);
+            pos = parent;
+        }
+    }
+
+    private void siftDown(int pos) {
+        while (true) {
+            int left = 2 * pos + 1;
+            if (left >= size) break;
+            int worst = left;
+            int right = left + 1;
+            if (right < size && isBetter(scores[left], indices[left], scores[right], indices[right])) {
+                worst = right;
+            }
+            if (!isBetter(scores[pos], indices[pos], scores[worst], indices[worst])) break;
+            swap(pos, worst);
+            pos = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        int index = indices[a];
+        indices[a] = indices[b];
+        indices[b] = index;
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Top-rated lists, overall, per category and by score range, must match sorting
+ * the rated courses by Bayesian average, including after ratings move them.
+ */
+final class TopRatedCheck implements EngineCheck {
+    private static final int CATALOG_SIZE = 3_000;
+    private static final int EXTRA_RATINGS = 5_000;
+    private static final int K = 20;
+
+    // What the top-rated index orders by: best Bayesian average first, lower ordinal among equals
+    static final Comparator<Course> BEST_FIRST = Comparator
+            .comparingDouble((Course course) ->
+                    -course.getBayesianRating(TopRatedIndex.PRIOR_MEAN, TopRatedIndex.PRIOR_WEIGHT))
+            .thenComparingInt(Course::getOrdinal);
+
+    @Override
+    public String name() {
+        return "toprated";
+    }
+
+    @Override
+    public void run(List<String> failures) {
+        RecommendationEngine engine = EngineFixtures.buildEngine(CATALOG_SIZE);
+        compare(engine, "before extra ratings", failures);
+        Random random = new Random(EngineFixtures.SEED);
+        List<Course> catalog = engine.getAllCourses();
+        for (int i = 0; i < EXTRA_RATINGS; i++) {
+            catalog.get(random.nextInt(catalog.size())).addRating("toprated" + random.nextInt(100), 1 + random.nextInt(5));
+        }
+        compare(engine, "after extra ratings", failures);
+        engine.shutdown();
+    }
+
+    private static void compare(RecommendationEngine engine, String when, List<String> failures) {
+        List<Course> rated = engine.getAllCourses().stream()
+                .filter(course -> course.getRatingCount() > 0)
+                .sorted(BEST_FIRST)
+                .collect(Collectors.toList());
+        if (!engine.topRatedCourses(K).equals(rated.subList(0, Math.min(K, rated.size())))) {
+            failures.add("Overall top " + K + " out of order " + when);
+        }
+        for (CourseCategory category : CourseCategory.values()) {
+            List<Course> inCategory = rated.stream()
+                    .filter(course -> course.getCategory() == category)
+                    .limit(K)
+                    .collect(Collectors.toList());
+            if (!engine.topRatedCourses(category, K).equals(inCategory)) {
+                failures.add("Top " + K + " in " + category + " out of order " + when);
+            }
+        }
+        List<Course> inRange = rated.stream()
+                .filter(course -> {
+                    double score = course.getBayesianRating(TopRatedIndex.PRIOR_MEAN, TopRatedIndex.PRIOR_WEIGHT);
+                    return score >= 3.0 && score <= 3.5;
+                })
+                .limit(K)
+                .collect(Collectors.toList());
+        if (!engine.coursesRatedBetween(3.0, 3.5, K).equals(inRange)) {
+            failures.add("Courses rated between 3.0 and 3.5 out of step " + when);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Rated courses kept in descending order of Bayesian average rating, overall
+ * and per category, so top-rated screens and score-range scans read the head
+ * of a skip list instead of sorting the catalog. A new rating moves its course
+ * with one O(log n) insert and one O(log n) removal.
+ *
+ * The Bayesian average pulls courses with few ratings toward a fixed prior, so
+ * a single 5-star rating does not outrank a hundred 4.8s. The prior is a
+ * constant rather than the live catalog mean: a moving mean would change every
+ * course's key on each rating.
+ *
+ * Writers are serialized on the index monitor; readers walk the skip lists
+ * without locking. A moving course is briefly listed twice, so readers only
+ * report the entry currently registered for its ordinal.
+ */
+public class TopRatedIndex implements Course.ChangeListener {
+    public static final double PRIOR_MEAN = 3.0;
+    public static final int PRIOR_WEIGHT = 5;
+
+    private static final Comparator<Entry> BEST_FIRST = (a, b) -> {
+        int byScore = Double.compare(b.score, a.score);
+        return byScore != 0 ? byScore : Integer.compare(a.ordinal, b.ordinal);
+    };
+
+    private static final class Entry {
+        final double score;
+        final int ordinal;
+        final CourseCategory category;
+
+        Entry(double score, int ordinal, CourseCategory category) {
+            this.score = score;
+            this.ordinal = ordinal;
+            this.category = category;
+        }
+    }
+
+    private final ConcurrentSkipListSet<Entry> overall = new ConcurrentSkipListSet<>(BEST_FIRST);
+    private final EnumMap<CourseCategory, ConcurrentSkipListSet<Entry>> byCategory =
+            new EnumMap<>(CourseCategory.class);
+    // Course ordinal to its live entry; absent while the course is unrated
+    private final Map<Integer, Entry> current = new ConcurrentHashMap<>();
+
+    public TopRatedIndex() {
+        for (CourseCategory category : CourseCategory.values()) {
+            byCategory.put(category, new ConcurrentSkipListSet<>(BEST_FIRST));
+        }
+    }
+
+    // Files the course under its current aggregate; also drops whatever a replaced course had under this ID
+    public synchronized void indexCourse(Course course) {
+        Entry previous = current.get(course.getOrdinal());
+        int count = course.getRatingCount();
+        if (count <= 0) {
+            if (previous != null) {
+                current.remove(course.getOrdinal());
+                unlink(previous);
+            }
+            return;
+        }
+        Entry next = new Entry(course.getBayesianRating(PRIOR_MEAN, PRIOR_WEIGHT), course.getOrdinal(),
+                course.getCategory());
+        if (previous != null && previous.score == next.score && previous.category == next.category) {
+            return;
+        }
+        // Listed before it becomes current and the old entry is unlisted after, so a reader always finds one
+        overall.add(next);
+        byCategory.get(next.category).add(next);
+        current.put(next.ordinal, next);
+        if (previous != null) {
+            unlink(previous);
+        }
+    }
+
+    private void unlink(Entry entry) {
+        overall.remove(entry);
+        byCategory.get(entry.category).remove(entry);
+    }
+
+    // Ordinals of the k best-rated courses, best first
+    public int[] topRated(int k) {
+        return collect(overall, k);
+    }
+
+    public int[] topRated(CourseCategory category, int k) {
+        return collect(byCategory.get(category), k);
+    }
+
+    // Up to limit ordinals whose Bayesian average lies in [minScore, maxScore], best first
+    public int[] inScoreRange(double minScore, double maxScore, int limit) {
+        if (minScore > maxScore) return new int[0];
+        NavigableSet<Entry> range = overall.subSet(new Entry(maxScore, Integer.MIN_VALUE, null), true,
+                new Entry(minScore, Integer.MAX_VALUE, null), true);
+        return collect(range, limit);
+    }
+
+    // Courses with at least one rating
+    public int size() {
+        return current.size();
+    }
+
+    private int[] collect(NavigableSet<Entry> entries, int k) {
+        int[] ordinals = new int[Math.min(k, 64)];
+        int found = 0;
+        for (Entry entry : entries) {
+            if (found == k) break;
+            if (current.get(entry.ordinal) != entry) continue;
+            if (found == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, Math.min(k, ordinals.length * 2));
+            }
+            ordinals[found++] = entry.ordinal;
+        }
+        return Arrays.copyOf(ordinals, found);
+    }
+
+    @Override
+    public void onEnrollmentChanged(Course course, int previousCount) {
+    }
+
+    @Override
+    public void onRatingAdded(Course course, int userOrdinal, int rating, double previousAverage, int previousCount) {
+        indexCourse(course);
+    }
+}
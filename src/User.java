@@ -1,6 +1,8 @@
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntConsumer;
 import java.util.regex.Pattern;
 import java.io.*;
 
@@ -12,19 +14,47 @@ enum SkillLevel {
 public class User implements Serializable {
     private static final long serialVersionUID = 1L;
     private final String userID;
+    // Dense ordinal of userID in IdDictionary.USERS, the key engine-side structures use
+    private final int ordinal;
     private String name;
     private String email;
     private String password; // Hashed password
     private SkillLevel skillLevel;
-    private Set<String> interests;
+    // Category interests as a bitmask over CourseCategory.ordinal(), read lock-free by the engine
+    private volatile int interestMask;
+    // Interests that name no CourseCategory, kept only so free-text entries survive a save
+    private Set<String> otherInterests;
     private List<String> completedCourses;
     private List<String> enrolledCourseIds;
+    // Courses the user asked never to be recommended again
+    private List<String> dismissedCourses;
+    // Bitsets over course ordinals (IdDictionary.COURSES) mirroring the three lists above
+    private transient BitSet enrolledBits = new BitSet();
+    private transient BitSet completedBits = new BitSet();
+    private transient BitSet dismissedBits = new BitSet();
+    // Unions of the above, republished as fresh arrays on every change so readers never lock:
+    // enrolled or completed ("taken"), and taken or dismissed (never recommended)
+    private transient volatile long[] takenWords = new long[0];
+    private transient volatile long[] excludedWords = new long[0];
+    // Interest weights learned from this user's events; saved with the rest of the profile
+    private PreferenceWeights preferenceWeights = new PreferenceWeights();
     private Map<String, Integer> courseProgress = new HashMap<>();
     private Map<String, String> lastAccessedModule = new HashMap<>();
     private Map<String, LocalDateTime> lastAccessTime = new HashMap<>();
     private Map<String, List<Integer>> courseRatings = new HashMap<>();
     private Map<String, List<RatingEntry>> courseRatingsWithTimestamps = new HashMap<>();
     private static RecommendationEngine engineReference;
+    // Observers (e.g. the engine's recommendation cache) notified of learning events
+    private transient List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    public enum ChangeType {
+        ENROLLED, UNENROLLED, COMPLETED, PROGRESS_UPDATED, RATED, INTERESTS_CHANGED, DISMISSED
+    }
+
+    public interface ChangeListener {
+        // courseId is null for INTERESTS_CHANGED; value carries the rating or progress percentage
+        void onUserChanged(User user, ChangeType type, String courseId, int value);
+    }
 
     public static void setEngine(RecommendationEngine engine) {
         engineReference = engine;
@@ -33,13 +63,15 @@ public class User implements Serializable {
     public User(String userID, String name, String email, String password) {
         validateInputs(userID, name, email, password);
         this.userID = userID;
+        this.ordinal = IdDictionary.USERS.intern(userID);
         this.name = name;
         this.email = email;
         this.password = hashPassword(password);
         this.skillLevel = SkillLevel.BEGINNER;
-        this.interests = new HashSet<>();
+        this.otherInterests = new HashSet<>();
         this.completedCourses = new ArrayList<>();
         this.enrolledCourseIds = new ArrayList<>();
+        this.dismissedCourses = new ArrayList<>();
         this.courseProgress = new HashMap<>();
         this.lastAccessedModule = new HashMap<>();
         this.lastAccessTime = new HashMap<>();
@@ -96,7 +128,38 @@ public class User implements Serializable {
 
     public void addInterest(String interest) {
         if (interest != null && !interest.trim().isEmpty()) {
-            interests.add(interest);
+            if (addInterestQuietly(interest)) {
+                fireChange(ChangeType.INTERESTS_CHANGED, null, 0);
+            }
+        }
+    }
+
+    private synchronized boolean addInterestQuietly(String interest) {
+        CourseCategory category = toCategory(interest);
+        if (category == null) {
+            return otherInterests.add(interest);
+        }
+        int mask = interestMask | (1 << category.ordinal());
+        if (mask == interestMask) {
+            return false;
+        }
+        interestMask = mask;
+        return true;
+    }
+
+    private synchronized void replaceInterests(Set<String> newInterests) {
+        interestMask = 0;
+        otherInterests = new HashSet<>();
+        for (String interest : newInterests) {
+            addInterestQuietly(interest);
+        }
+    }
+
+    private static CourseCategory toCategory(String interest) {
+        try {
+            return CourseCategory.valueOf(interest);
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 
@@ -110,7 +173,8 @@ public class User implements Serializable {
         }
 
         if (interests != null && !interests.isEmpty()) {
-            this.interests = new HashSet<>(interests);
+            replaceInterests(interests);
+            fireChange(ChangeType.INTERESTS_CHANGED, null, 0);
         }
 
         saveToFile();
@@ -131,6 +195,8 @@ public class User implements Serializable {
     public boolean enrollCourse(String courseId) {
         if (!enrolledCourseIds.contains(courseId)) {
             enrolledCourseIds.add(courseId);
+            updateCourseBits(enrolledBits, courseId, true);
+            fireChange(ChangeType.ENROLLED, courseId, 0);
             saveToFile();
             return true;
         }
@@ -140,11 +206,14 @@ public class User implements Serializable {
     public void completeCourse(String courseId) {
         if (enrolledCourseIds.contains(courseId)) {
             enrolledCourseIds.remove(courseId);
+            updateCourseBits(enrolledBits, courseId, false);
 
             if (!completedCourses.contains(courseId)) {
                 completedCourses.add(courseId);
+                updateCourseBits(completedBits, courseId, true);
             }
             updateSkillLevel();
+            fireChange(ChangeType.COMPLETED, courseId, 0);
             saveToFile();
         }
     }
@@ -174,7 +243,7 @@ public class User implements Serializable {
 
             // Interests
             writer.println("INTERESTS:");
-            for (String interest : interests) {
+            for (String interest : getInterests()) {
                 writer.println("  " + interest);
             }
 
@@ -244,6 +313,27 @@ public class User implements Serializable {
                 }
             }
 
+            // Written last: readers that predate this section skip it instead of misfiling its items
+            if (!dismissedCourses.isEmpty()) {
+                writer.println("DISMISSED_COURSES:");
+                for (String courseId : dismissedCourses) {
+                    writer.println("  " + courseId + " - " + getCourseTitle.apply(courseId));
+                }
+            }
+
+            // Evidence as of the landmark day; the weights themselves are derived on read
+            writer.println("PREFERENCE_WEIGHTS:");
+            // Weights that never recorded anything have no landmark and no evidence to save
+            if (preferenceWeights.hasLandmark()) {
+                writer.println("  LANDMARK_DAY: " + preferenceWeights.getLandmarkDay());
+                for (CourseCategory category : CourseCategory.values()) {
+                    double evidence = preferenceWeights.evidenceAtLandmark(category);
+                    if (evidence != 0.0) {
+                        writer.println("  " + category.name() + ": " + evidence);
+                    }
+                }
+            }
+
             writer.close();
             System.out.println("✅ User data saved successfully to " + fileName);
         } catch (IOException e) {
@@ -269,6 +359,9 @@ public class User implements Serializable {
             Set<String> interests = new HashSet<>();
             List<String> enrolledCourses = new ArrayList<>();
             List<String> completedCourses = new ArrayList<>();
+            List<String> dismissedCourses = new ArrayList<>();
+            PreferenceWeights preferenceWeights = null;
+            Map<CourseCategory, Double> preferenceEvidence = new EnumMap<>(CourseCategory.class);
             Map<String, Integer> courseProgress = new HashMap<>();
             Map<String, String> lastAccessedModule = new HashMap<>();
             Map<String, LocalDateTime> lastAccessTime = new HashMap<>();
@@ -313,6 +406,10 @@ public class User implements Serializable {
                 } else if (line.equals("RATINGS:")) {
                     section = "RATINGS";
                     inRatingsSubsection = false;
+                } else if (line.equals("DISMISSED_COURSES:")) {
+                    section = "DISMISSED_COURSES";
+                } else if (line.equals("PREFERENCE_WEIGHTS:")) {
+                    section = "PREFERENCE_WEIGHTS";
                 } else if (line.startsWith("  ")) {
                     String item = line.substring(2).trim();
                     
@@ -328,6 +425,22 @@ public class User implements Serializable {
                             // Extract course ID (ignore name)
                             completedCourses.add(item.split(" - ")[0].trim());
                             break;
+                        case "DISMISSED_COURSES":
+                            dismissedCourses.add(item.split(" - ")[0].trim());
+                            break;
+                        case "PREFERENCE_WEIGHTS":
+                            try {
+                                String value = item.substring(item.indexOf(':') + 1).trim();
+                                if (item.startsWith("LANDMARK_DAY:")) {
+                                    preferenceWeights = new PreferenceWeights(Long.parseLong(value));
+                                } else {
+                                    preferenceEvidence.put(CourseCategory.valueOf(item.substring(0, item.indexOf(':')).trim()),
+                                            Double.parseDouble(value));
+                                }
+                            } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+                                System.err.println("Invalid preference weight: " + item);
+                            }
+                            break;
                         case "COURSE_PROGRESS":
                             if (item.startsWith("COURSE_ID:")) {
                                 currentCourseId = item.substring(10).trim();
@@ -427,8 +540,8 @@ public class User implements Serializable {
                 }
             }
             
-            // Save the last rating entry if we have one
-            if (ratingValue > 0 && currentCourseId != null && section.equals("RATINGS")) {
+            // Save the last rating entry if we have one; sections written after RATINGS never touch it
+            if (ratingValue > 0 && currentCourseId != null) {
                 // Add to traditional ratings for backward compatibility
                 if (!courseRatings.containsKey(currentCourseId)) {
                     courseRatings.put(currentCourseId, new ArrayList<>());
@@ -461,9 +574,17 @@ public class User implements Serializable {
             // Create and configure user
             User user = createUserWithoutValidation(userId, name, email, password);
             user.skillLevel = skillLevel;
-            user.interests = interests;
+            user.replaceInterests(interests);
             user.enrolledCourseIds = enrolledCourses;
             user.completedCourses = completedCourses;
+            user.dismissedCourses = dismissedCourses;
+            user.rebuildCourseBits();
+            if (preferenceWeights != null) {
+                for (Map.Entry<CourseCategory, Double> entry : preferenceEvidence.entrySet()) {
+                    preferenceWeights.restoreEvidenceAtLandmark(entry.getKey(), entry.getValue());
+                }
+                user.preferenceWeights = preferenceWeights;
+            }
             user.courseProgress = courseProgress;
             user.lastAccessedModule = lastAccessedModule;
             user.lastAccessTime = lastAccessTime;
@@ -487,6 +608,10 @@ public class User implements Serializable {
         return userID;
     }
 
+    public int getOrdinal() {
+        return ordinal;
+    }
+
     public String getName() {
         return name;
     }
@@ -499,8 +624,32 @@ public class User implements Serializable {
         return skillLevel;
     }
 
-    public Set<String> getInterests() {
-        return new HashSet<>(interests);
+    // String façade over the category bitmask plus any free-text interests
+    public synchronized Set<String> getInterests() {
+        Set<String> interests = new HashSet<>(otherInterests);
+        for (CourseCategory category : getInterestCategories()) {
+            interests.add(category.name());
+        }
+        return interests;
+    }
+
+    public Set<CourseCategory> getInterestCategories() {
+        int mask = interestMask;
+        Set<CourseCategory> categories = EnumSet.noneOf(CourseCategory.class);
+        for (CourseCategory category : CourseCategory.values()) {
+            if ((mask & (1 << category.ordinal())) != 0) {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    public PreferenceWeights getPreferenceWeights() {
+        return preferenceWeights;
+    }
+
+    public boolean isInterestedIn(CourseCategory category) {
+        return (interestMask & (1 << category.ordinal())) != 0;
     }
 
     public List<String> getCompletedCourses() {
@@ -511,6 +660,78 @@ public class User implements Serializable {
         return new ArrayList<>(enrolledCourseIds);
     }
 
+    public List<String> getDismissedCourses() {
+        return new ArrayList<>(dismissedCourses);
+    }
+
+    // Hides a course from future recommendations without enrolling in it
+    public boolean dismissCourse(String courseId) {
+        if (courseId == null || courseId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Course ID cannot be empty");
+        }
+        if (dismissedCourses.contains(courseId)) {
+            return false;
+        }
+        dismissedCourses.add(courseId);
+        updateCourseBits(dismissedBits, courseId, true);
+        fireChange(ChangeType.DISMISSED, courseId, 0);
+        saveToFile();
+        return true;
+    }
+
+    // Visits the ordinal of every enrolled, completed or dismissed course, in ascending order
+    public void forEachExcludedCourse(IntConsumer action) {
+        forEachBit(excludedWords, action);
+    }
+
+    public synchronized boolean hasCompletedCourse(int courseOrdinal) {
+        return completedBits.get(courseOrdinal);
+    }
+
+    // Visits the ordinal of every enrolled or completed course, in ascending order
+    public void forEachTakenCourse(IntConsumer action) {
+        forEachBit(takenWords, action);
+    }
+
+    private static void forEachBit(long[] words, IntConsumer action) {
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                action.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private synchronized void updateCourseBits(BitSet bits, String courseId, boolean value) {
+        bits.set(IdDictionary.COURSES.intern(courseId), value);
+        publishExcludedWords();
+    }
+
+    // Recomputes every bitset from the ID lists, e.g. after loading from file
+    private synchronized void rebuildCourseBits() {
+        enrolledBits = toCourseBits(enrolledCourseIds);
+        completedBits = toCourseBits(completedCourses);
+        dismissedBits = toCourseBits(dismissedCourses);
+        publishExcludedWords();
+    }
+
+    private static BitSet toCourseBits(List<String> courseIds) {
+        BitSet bits = new BitSet();
+        for (String courseId : courseIds) {
+            bits.set(IdDictionary.COURSES.intern(courseId));
+        }
+        return bits;
+    }
+
+    private void publishExcludedWords() {
+        BitSet taken = (BitSet) enrolledBits.clone();
+        taken.or(completedBits);
+        takenWords = taken.toLongArray();
+        taken.or(dismissedBits);
+        excludedWords = taken.toLongArray();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -524,19 +745,44 @@ public class User implements Serializable {
         return Objects.hash(userID);
     }
 
+    public void addChangeListener(ChangeListener listener) {
+        if (listener == null) throw new IllegalArgumentException("Listener cannot be null");
+        if (changeListeners == null) {
+            changeListeners = new CopyOnWriteArrayList<>();
+        }
+        if (!changeListeners.contains(listener)) {
+            changeListeners.add(listener);
+        }
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        if (changeListeners != null) {
+            changeListeners.remove(listener);
+        }
+    }
+
+    private void fireChange(ChangeType type, String courseId, int value) {
+        if (changeListeners == null) return;
+        for (ChangeListener listener : changeListeners) {
+            listener.onUserChanged(this, type, courseId, value);
+        }
+    }
+
     public void clearInterests() {
-        interests.clear();  // Remove all interests
         setInterests(new HashSet<>()); // Explicitly set to an empty set
         saveToFile();  // Ensure changes are saved
     }
 
     public void setInterests(Set<String> newInterests) {
-        interests = new HashSet<>(newInterests);
+        replaceInterests(newInterests);
+        fireChange(ChangeType.INTERESTS_CHANGED, null, 0);
     }
 
     public void enrollInCourse(String courseId) {
         if (!enrolledCourseIds.contains(courseId)) {
             enrolledCourseIds.add(courseId);
+            updateCourseBits(enrolledBits, courseId, true);
+            fireChange(ChangeType.ENROLLED, courseId, 0);
             saveToFile();
         }
     }
@@ -573,6 +819,8 @@ public class User implements Serializable {
 
         if (enrolledCourseIds.contains(courseID)) {
             enrolledCourseIds.remove(courseID);
+            updateCourseBits(enrolledBits, courseID, false);
+            fireChange(ChangeType.UNENROLLED, courseID, 0);
             System.out.println("Course " + courseID + " has been removed from your enrolled courses.");
 
             // Save the changes to the user's file
@@ -595,6 +843,7 @@ public class User implements Serializable {
         courseProgress.put(courseId, validProgress);
         lastAccessedModule.put(courseId, moduleId);
         lastAccessTime.put(courseId, LocalDateTime.now());
+        fireChange(ChangeType.PROGRESS_UPDATED, courseId, validProgress);
 
         // If progress is 100%, mark as completed
         if (validProgress == 100) {
@@ -688,6 +937,7 @@ public class User implements Serializable {
             courseRatings.put(courseId, new ArrayList<>());
         }
         courseRatings.get(courseId).add(rating);
+        fireChange(ChangeType.RATED, courseId, rating);
         
         saveToFile();  // Ensure changes are saved
     }
@@ -716,6 +966,8 @@ public class User implements Serializable {
     public void unenrollCourse(String courseID) {
         if (enrolledCourseIds.contains(courseID)) {
             enrolledCourseIds.remove(courseID);
+            updateCourseBits(enrolledBits, courseID, false);
+            fireChange(ChangeType.UNENROLLED, courseID, 0);
             saveToFile();
         }
     }